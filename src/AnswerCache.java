@@ -0,0 +1,231 @@
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import tree.Engine;
+
+/// The AnswerCache class keeps the answers of the most frequent queries in front of an engine, for skewed query streams.
+/// Queries are keyed by their normalized pair (min(u,v) << 32 | max(u,v)) in an open-addressed table of primitive arrays.
+/// The table is split in sets of WAYS consecutive slots: a key can only be in the set given by its hash, and when the set is
+/// full the victim is chosen by CLOCK (the hand of the set skips, and clears, the slots read since it last passed).
+/// Each set is guarded by a sequence lock: readers never block, and simply retry (or miss) if a writer changed the set while
+/// they read it; a writer only takes the set if it is free, and otherwise does not cache its answer.
+/// When the answers come from an IndexHolder, the table belongs to one epoch of the index: once a new snapshot is published,
+/// the next query replaces the table by an empty one, and answers computed on an older snapshot are never cached in it.
+public class AnswerCache implements Engine {
+
+	static final int WAYS = 8;
+
+	static final int MISS = Integer.MIN_VALUE; // never an answer (which are weights, or -1)
+	static final long EMPTY = -1; // never a key (vertices are not negative)
+
+	private final Engine engine; // null if the answers come from the holder
+	private final IndexHolder holder;
+	private final int sets;
+
+	private volatile Table table;
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	/// Summary: Caches the answers of engine, in at least capacity slots.
+	public AnswerCache(Engine engine, int capacity) {
+
+		this(engine, null, capacity);
+
+	}
+
+	/// Summary: Caches the answers of the current snapshot of holder, in at least capacity slots.
+	public AnswerCache(IndexHolder holder, int capacity) {
+
+		this(null, holder, capacity);
+
+	}
+
+	private AnswerCache(Engine engine, IndexHolder holder, int capacity) {
+
+		this.engine = engine;
+		this.holder = holder;
+
+		// A power of two, so that the set of a hash is its low bits.
+		int count = Math.max(1, (capacity + WAYS - 1) / WAYS);
+		this.sets = (count == 1) ? 1 : Integer.highestOneBit(count - 1) << 1;
+		this.table = new Table(holder == null ? 0 : holder.Epoch(), sets);
+
+	}
+
+	public int MaxNoise(int u, int v) {
+
+		if(u == v)
+			return (engine != null) ? engine.MaxNoise(u, v) : holder.MaxNoise(u, v);
+
+		long key = (u < v) ? ((long) u << 32) | v : ((long) v << 32) | u;
+
+		Table t = table;
+
+		if(holder != null && t.epoch != holder.Epoch())
+			t = Renew(t);
+
+		int noise = t.Get(key);
+
+		if(noise != MISS) {
+			hits.increment();
+			return noise;
+		}
+
+		misses.increment();
+
+		if(engine != null) {
+			noise = engine.MaxNoise(u, v);
+			t.Put(key, noise);
+			return noise;
+		}
+
+		try (IndexHolder.Snapshot snapshot = holder.Acquire()) {
+
+			noise = snapshot.MaxNoise(u, v);
+
+			if(snapshot.epoch == t.epoch)
+				t.Put(key, noise);
+
+			return noise;
+		}
+	}
+
+	/// Summary: Empties the cache (e.g. after the engine was changed).
+	public void Invalidate() {
+
+		table = new Table(table.epoch, sets);
+
+	}
+
+	public long Hits() {
+
+		return hits.sum();
+
+	}
+
+	public long Misses() {
+
+		return misses.sum();
+
+	}
+
+	// Replaces the table t, if it is still the current one, by an empty table for the current epoch of the holder.
+	private synchronized Table Renew(Table t) {
+
+		if(table == t)
+			table = new Table(holder.Epoch(), sets);
+
+		return table;
+	}
+
+	// The slots, with their sets' locks and CLOCK hands.
+	private static class Table {
+
+		final long epoch;
+
+		final long[] keys;
+		final int[] values;
+		final byte[] referenced; // 1 if the slot was read since the hand last passed it
+
+		final int[] hand;
+		final AtomicIntegerArray version; // odd while the set is being written
+
+		Table(long epoch, int sets) {
+
+			this.epoch = epoch;
+
+			keys = new long[sets * WAYS];
+			values = new int[sets * WAYS];
+			referenced = new byte[sets * WAYS];
+			hand = new int[sets];
+			version = new AtomicIntegerArray(sets);
+
+			Arrays.fill(keys, EMPTY);
+		}
+
+		// Set of the key, from the bits of a mixed hash (the finalizer of MurmurHash3).
+		int Set(long key) {
+
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			key *= 0xc4ceb9fe1a85ec53L;
+			key ^= key >>> 33;
+
+			return (int) key & (hand.length - 1);
+		}
+
+		// Returns the value of the key, or MISS.
+		int Get(long key) {
+
+			int set = Set(key), base = set * WAYS;
+
+			// Two attempts, in case a writer was changing the set.
+			for(int attempt = 0; attempt < 2; attempt++) {
+
+				int before = version.get(set);
+				if((before & 1) != 0)
+					continue;
+
+				int slot = -1, value = 0;
+				for(int i = base; i < base + WAYS; i++)
+					if(keys[i] == key) {
+						slot = i;
+						value = values[i];
+						break;
+					}
+
+				// The slots must be read before the version is read again.
+				VarHandle.acquireFence();
+
+				if(version.get(set) != before)
+					continue;
+
+				if(slot == -1)
+					return MISS;
+
+				// A racy write: at worst, the hand sees the slot as unread and may evict it early.
+				if(referenced[slot] == 0)
+					referenced[slot] = 1;
+
+				return value;
+			}
+
+			return MISS;
+		}
+
+		// Stores the key with its value, unless another thread is writing the set.
+		void Put(long key, int value) {
+
+			int set = Set(key), base = set * WAYS;
+
+			int before = version.get(set);
+			if((before & 1) != 0 || !version.compareAndSet(set, before, before + 1))
+				return;
+
+			int slot = -1;
+			for(int i = base; i < base + WAYS && slot == -1; i++)
+				if(keys[i] == key || keys[i] == EMPTY)
+					slot = i;
+
+			// CLOCK: the hand moves on, clearing the referenced slots, up to the first slot which is not.
+			while(slot == -1) {
+				int i = base + hand[set];
+				hand[set] = (hand[set] + 1) & (WAYS - 1);
+				if(referenced[i] == 0)
+					slot = i;
+				else
+					referenced[i] = 0;
+			}
+
+			keys[slot] = key;
+			values[slot] = value;
+			referenced[slot] = 0;
+
+			version.set(set, before + 2);
+		}
+	}
+
+}
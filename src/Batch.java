@@ -0,0 +1,156 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import metrics.Metrics;
+import tree.Engine;
+import tree.Parallel;
+
+/// The Batch class answers an array of queries with an online Engine, handing the answers to a ResultWriter (if any) as they
+/// are computed.
+/// The queries are answered in steps of BLOCK queries per thread. With several threads, each step is split into fork-join tasks
+/// of GRAIN queries, each one filling its own range of the answer array: the tree is only read, and the tasks never write to
+/// the same part of the array, so no synchronization is needed beyond the fork-join itself.
+/// The queries may also be answered in a locality-friendly order (see QueryOrder), the answers being put back in input order.
+public class Batch implements AutoCloseable {
+
+	// Number of queries per thread answered between two writes of the answers.
+	static final int BLOCK = 1 << 16;
+
+	// Number of queries answered by each fork-join task.
+	static final int GRAIN = 1 << 12;
+
+	private ResultWriter writer; // null if the answers are not written
+	private ForkJoinPool pool; // null with a single thread
+	private int threads;
+	private int order; // QueryOrder.INPUT, PREORDER or HILBERT
+
+	public Batch(int threads, ResultWriter writer) {
+
+		this(threads, writer, QueryOrder.INPUT);
+
+	}
+
+	public Batch(int threads, ResultWriter writer, int order) {
+
+		this.threads = Math.max(1, threads);
+		this.writer = writer;
+		this.order = order;
+		this.pool = Parallel.Pool(this.threads);
+
+	}
+
+	/// Summary: Answers the queries (pairs of vertices in query[]) with the engine, and returns the answers.
+	public int[] Run(Engine engine, int[] query) {
+
+		int[] noise = new int[query.length / 2];
+
+		Run(engine, query, noise.length, noise);
+
+		return noise;
+	}
+
+	/// Summary: Answers the first count queries of query[] with the engine, into noise[].
+	public void Run(Engine engine, int[] query, int count, int[] noise) {
+
+		Run(engine, query, count, noise, writer);
+
+	}
+
+	/// Summary: Returns whether the batch answers the queries in another order than the input order (and so needs the ranks
+	/// of the vertices, see Run).
+	public boolean Reorders() {
+
+		return order != QueryOrder.INPUT;
+
+	}
+
+	/// Summary: Answers the queries (pairs of vertices in query[]) with the engine, in the order of the batch, and returns the
+	/// answers in input order. rank supplies the rank of each vertex in the tree (e.g. its preorder), only if it is needed.
+	/// When reordered, the answers are only written at the end, once all of them are known.
+	public int[] Run(Engine engine, int[] query, Supplier<int[]> rank) {
+
+		if(order == QueryOrder.INPUT)
+			return Run(engine, query);
+
+		int count = query.length / 2;
+
+		// Sorting the queries is timed on its own, apart from the preprocessing of the engine and from the queries.
+		Metrics.Timer timer = Metrics.Start(Metrics.SORT);
+
+		int[] index = QueryOrder.Sort(query, count, rank.get(), order == QueryOrder.HILBERT);
+
+		// The queries are copied in their new order, so that they are also read sequentially.
+		int[] sorted = new int[2 * count];
+		for(int i = 0; i < count; i++) {
+			sorted[2*i] = query[2*index[i]];
+			sorted[2*i+1] = query[2*index[i]+1];
+		}
+
+		Metrics.Stop(timer);
+
+		int[] answer = new int[count];
+		Run(engine, sorted, count, answer, null);
+
+		int[] noise = new int[count];
+		for(int i = 0; i < count; i++)
+			noise[index[i]] = answer[i];
+
+		Write(noise);
+
+		return noise;
+	}
+
+	// Answers the first count queries of query[] into noise[], step by step, handing each step to the writer (if any).
+	private void Run(Engine engine, int[] query, int count, int[] noise, ResultWriter writer) {
+
+		int step = BLOCK * threads;
+
+		for(int from = 0; from < count; from += step) {
+
+			int to = Math.min(count, from + step);
+
+			Metrics.Timer timer = Metrics.Start(Metrics.QUERY);
+
+			Parallel.For(pool, from, to, GRAIN, (start, end) -> Answer(engine, query, noise, start, end));
+
+			Metrics.Stop(timer);
+			Metrics.Add(Metrics.QUERIES, to - from);
+
+			if(writer != null)
+				writer.Write(noise, from, to);
+		}
+	}
+
+	// Writes answers computed elsewhere (e.g. by an offline engine).
+	public void Write(int[] noise) {
+
+		if(writer != null)
+			writer.Write(noise, 0, noise.length);
+
+	}
+
+	// Makes sure that all the answers given to the writer are written.
+	public void Flush() {
+
+		if(writer != null)
+			writer.Flush();
+
+	}
+
+	@Override
+	public void close() {
+
+		if(pool != null)
+			pool.shutdown();
+
+	}
+
+	// Answers the queries from ... to - 1.
+	static void Answer(Engine engine, int[] query, int[] noise, int from, int to) {
+
+		for(int i = from; i < to; i++)
+			noise[i] = engine.MaxNoise(query[2*i], query[2*i+1]);
+
+	}
+
+}
@@ -0,0 +1,260 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import graph.Edge;
+import graph.Graph;
+import tree.CompactTree;
+import tree.Engine;
+import tree.HeavyLight;
+import tree.JumpPointers;
+import tree.KruskalTree;
+import tree.LiftingIndex;
+import tree.LinkCutTree;
+import tree.Tree;
+
+/// The Benchmark class measures each phase (parsing, spanning tree, tree construction, preprocessing) and each query engine
+/// separately, on any number of input files (e.g. graphs of several sizes and shapes, see Generator).
+/// Every (benchmark, input) pair runs in fresh JVMs ("forks"), so that the JIT profile and heap left by one benchmark never
+/// affect the next. In each fork the operation is repeated for warmup iterations, which are not measured, then for measured
+/// iterations reporting the mean time per operation, the bytes allocated by the measuring thread (ThreadMXBean) and the
+/// garbage collections (GarbageCollectorMXBeans). The query engines also report the latency of single queries, timed one by one.
+/// Usage: java Benchmark itineraries.1.in itineraries.2.in [bench=parse,mst,v2 forks=2 warmup=3 iterations=5]
+public class Benchmark {
+
+	static final String[] BENCHMARKS = { "parse", "mst", "tree", "compact", "preprocess", "v1", "v2", "v3", "v4", "v5", "v6", "v7" };
+
+	// Maximum number of queries timed one by one, for the latency.
+	static final int SAMPLES = 1 << 20;
+
+	// Results of the operations, so that the JIT cannot remove them.
+	static volatile Object sink;
+
+	// An operation to measure.
+	private interface Operation {
+		Object Run();
+	}
+
+	public static void main(String[] args) {
+
+		if(args[0].equals("fork")) {
+			Fork(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+			return;
+		}
+
+		List<String> inputs = new ArrayList<String>();
+		String[] benchmarks = BENCHMARKS;
+		int forks = 2, warmup = 3, iterations = 5;
+
+		for(String arg : args) {
+
+			String[] option = arg.split("=", 2);
+
+			if(option.length == 1) {
+				inputs.add(arg);
+				continue;
+			}
+
+			switch(option[0]) {
+			case "bench":
+				benchmarks = option[1].split(",");
+				break;
+			case "forks":
+				forks = Integer.parseInt(option[1]);
+				break;
+			case "warmup":
+				warmup = Integer.parseInt(option[1]);
+				break;
+			case "iterations":
+				iterations = Integer.parseInt(option[1]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + option[0]);
+			}
+		}
+
+		System.out.println(String.format("%-12s %-24s %5s %12s %10s %14s %5s %8s %10s %10s %10s",
+				"benchmark", "input", "fork", "ms/op", "stdev", "bytes/op", "gc", "gc ms", "p50 ns", "p99 ns", "p99.9 ns"));
+
+		for(String input : inputs)
+			for(String benchmark : benchmarks)
+				for(int fork = 0; fork < forks; fork++)
+					System.out.println(String.format("%-12s %-24s %5d %s", benchmark, Paths.get(input).getFileName(), fork,
+							Spawn(benchmark, input, warmup, iterations)));
+	}
+
+	// Runs a benchmark in a new JVM, with the same java and class path, and returns its result line.
+	private static String Spawn(String benchmark, String input, int warmup, int iterations) {
+
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+		List<String> command = new ArrayList<String>();
+		command.add(java);
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments()); // e.g. the heap size given to this JVM
+		command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), "Benchmark", "fork",
+				benchmark, input, Integer.toString(warmup), Integer.toString(iterations)));
+
+		try {
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+			String result = null;
+			try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				for(String line = out.readLine(); line != null; line = out.readLine())
+					if(line.startsWith("RESULT "))
+						result = line.substring(7);
+					else
+						System.err.println(line);
+			}
+
+			if(process.waitFor() != 0 || result == null)
+				return "failed (exit code " + process.exitValue() + ")";
+
+			return result;
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "interrupted";
+		}
+	}
+
+	// Runs a benchmark in this JVM, printing its result line.
+	private static void Fork(String benchmark, String input, int warmup, int iterations) {
+
+		// The state needed by the benchmark is built before any measurement.
+		File f = benchmark.equals("parse") ? null : new File(input);
+		Graph G = (f == null) ? null : f.G;
+		int[] query = (f == null) ? null : f.query;
+		Edge[] E = (G == null || benchmark.equals("mst") || benchmark.equals("tree")) ? null : Tree.MST(G);
+
+		Batch batch = new Batch(1, null);
+		Engine engine = null;
+		Operation operation = null;
+
+		switch(benchmark) {
+		case "parse":
+			operation = () -> new File(input);
+			break;
+		case "mst":
+			operation = () -> Tree.MST(G);
+			break;
+		case "tree":
+			// The Node-based Tree, whose constructor also computes the spanning tree.
+			operation = () -> new Tree(G);
+			break;
+		case "compact":
+			operation = () -> new CompactTree(E, G.n);
+			break;
+		case "preprocess":
+			CompactTree P = new CompactTree(E, G.n);
+			operation = () -> new LiftingIndex(P);
+			break;
+		case "v1":
+			engine = Main.Naive(new CompactTree(E, G.n));
+			break;
+		case "v2":
+			engine = new LiftingIndex(new CompactTree(E, G.n));
+			break;
+		case "v3":
+			CompactTree T = new CompactTree(E, G.n);
+			operation = () -> LCA.TarjanLCA(T, query);
+			break;
+		case "v4":
+			engine = new KruskalTree(E, G.n);
+			break;
+		case "v5":
+			engine = new LinkCutTree(E, G.n);
+			break;
+		case "v6":
+			engine = new HeavyLight(new CompactTree(E, G.n));
+			break;
+		case "v7":
+			engine = new JumpPointers(new CompactTree(E, G.n));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+		}
+
+		// The online engines are measured on the whole batch of queries, as in Main.
+		if(engine != null) {
+			Engine online = engine;
+			operation = () -> batch.Run(online, query);
+		}
+
+		for(int i = 0; i < warmup; i++)
+			sink = operation.Run();
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long gcCount = -GcCount(), gcTime = -GcTime();
+		long allocated = -threads.getCurrentThreadAllocatedBytes();
+
+		double[] time = new double[iterations];
+		for(int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			sink = operation.Run();
+			time[i] = (System.nanoTime() - start) / 1e6;
+		}
+
+		allocated += threads.getCurrentThreadAllocatedBytes();
+		gcCount += GcCount();
+		gcTime += GcTime();
+
+		double mean = 0, variance = 0;
+		for(double t : time)
+			mean += t / iterations;
+		for(double t : time)
+			variance += (t - mean) * (t - mean) / Math.max(1, iterations - 1);
+
+		String latency = (engine == null) ? String.format("%10s %10s %10s", "-", "-", "-") : Latency(engine, query);
+
+		System.out.println(String.format("RESULT %12.3f %10.3f %14d %5d %8d %s",
+				mean, Math.sqrt(variance), allocated / Math.max(1, iterations), gcCount, gcTime, latency));
+	}
+
+	// Times the queries one by one (at most SAMPLES of them), and returns the percentiles of their latency.
+	private static String Latency(Engine engine, int[] query) {
+
+		int count = Math.min(query.length / 2, SAMPLES);
+		if(count == 0)
+			return String.format("%10s %10s %10s", "-", "-", "-");
+
+		long[] latency = new long[count];
+		int checksum = 0;
+
+		for(int i = 0; i < count; i++) {
+			long start = System.nanoTime();
+			checksum += engine.MaxNoise(query[2*i], query[2*i+1]);
+			latency[i] = System.nanoTime() - start;
+		}
+		sink = checksum;
+
+		Arrays.sort(latency);
+
+		return String.format("%10d %10d %10d", latency[count / 2], latency[(int) (count * 0.99)], latency[(int) (count * 0.999)]);
+	}
+
+	private static long GcCount() {
+
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static long GcTime() {
+
+		long time = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+	}
+
+}
@@ -1,73 +1,292 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-import graph.Edge;
 import graph.Graph;
+import metrics.Metrics;
+import tree.Parallel;
 
 /// The File class is responsible for reading and writing into files.
+/// Input files are memory-mapped and parsed directly from their bytes into primitive arrays: the first line holds n and m,
+/// the next m lines the edges "u v w", then a line holds the number of queries l, and the last l lines the queries "u v".
+/// Vertices are numbered from 1 in the file and from 0 in memory.
+/// Files can also be in a binary format (see WriteBinary), which is recognized by its first bytes and loaded without any parsing.
 public class File {
 	
-	public int[][] query;
+	// Binary format: the header MAGIC, VERSION, n, m, l, then the m edges as (u, v, w) and the l queries as (u, v),
+	// all as little-endian 32-bit ints, with vertices numbered from 0.
+	static final int MAGIC = 0x47505342; // "BSPG"
+	static final int VERSION = 1;
+	static final int HEADER = 5;
+	
+	// Size of the regions of the file parsed at once (and of the tasks of the parallel parser).
+	static final long CHUNK = 1 << 26;
+	
+	// Margin mapped after each region, which must hold the end of the last line starting in it.
+	static final int MARGIN = 1 << 8;
+	
+	public int[] query; // pairs of vertices: the i-th query goes from query[2*i] to query[2*i+1]
 	public int l;
 	Graph G;
 	
+	// Edges of G, filled by the parser.
+	private int n, m;
+	private int[] u, v, weight;
+	private long size;
+	
 	public File(String path) {
-		ReadFile(path);
+		ReadFile(path, 1);
 	}
 	
-	//Take the output
-	public void ReadFile(String path) {
-		try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-			
-			String sCurrentLine;
-			sCurrentLine = br.readLine();
-			String[] line = sCurrentLine.split(" ");
-			int n = Integer.parseInt(line[0]);
-			int m = Integer.parseInt(line[1]);
-			Edge[] E = new Edge[m];
-			for(int j = 0; j < m; j++){
+	// Parses the file with the given number of threads (sequentially for 1).
+	public File(String path, int threads) {
+		ReadFile(path, threads);
+	}
+	
+	/// Summary: Reads the graph and the queries of a file.
+	/// The file is split in regions of CHUNK bytes, each one parsing the lines which start in it. Sequentially, the regions
+	/// are parsed in order, counting the lines as they come. In parallel, the lines of each region are counted first, so that
+	/// every region knows the index of its first line (and thus whether it holds edges or queries) before being parsed.
+	/// The parallel parser runs on its own pool of the given number of threads (see Parallel).
+	public void ReadFile(String path, int threads) {
+		Metrics.Timer timer = Metrics.Start(Metrics.PARSE);
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			
+			size = channel.size();
+			int chunks = (int) ((size + CHUNK - 1) / CHUNK);
+			
+			if(size >= 4 * HEADER && new Scanner(channel, 0, 4).buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC) {
+				ReadBinary(channel);
+				return;
+			}
+			
+			// The header, then the arrays it sizes.
+			Scanner header = new Scanner(channel, 0, Math.min(size, MARGIN));
+			n = header.ParseInt();
+			m = header.ParseInt();
+			u = new int[m];
+			v = new int[m];
+			weight = new int[m];
+			
+			if(threads <= 1) {
+				long line = 0;
+				for(int c = 0; c < chunks; c++)
+					line += ParseChunk(channel, c * CHUNK, Math.min(size, (c + 1) * CHUNK), line);
+			}
+			else {
+				// Index of the first line starting in each region.
+				long[] first = new long[chunks + 1];
+				Parallel.For(threads, 0, chunks, 1, (from, to) -> {
+					for(int c = from; c < to; c++)
+						first[c + 1] = CountLines(channel, c * CHUNK, Math.min(size, (c + 1) * CHUNK));
+				});
+				for(int c = 0; c < chunks; c++)
+					first[c + 1] += first[c];
+				
+				// The region holding the line m + 1 is parsed first, to read the number of queries and size the query array.
+				for(int c = 0; c < chunks; c++)
+					if(first[c] <= m + 1 && m + 1 < first[c + 1])
+						ParseChunk(channel, c * CHUNK, Math.min(size, (c + 1) * CHUNK), first[c]);
 				
-				sCurrentLine = br.readLine();
-				line = sCurrentLine.split(" ");
-				E[j] = new Edge(Integer.parseInt(line[0]) - 1,Integer.parseInt(line[1]) - 1,Integer.parseInt(line[2])); // Subtract 1 because inputs starts from 1 and not from 0.
+				Parallel.For(threads, 0, chunks, 1, (from, to) -> {
+					for(int c = from; c < to; c++)
+						ParseChunk(channel, c * CHUNK, Math.min(size, (c + 1) * CHUNK), first[c]);
+				});
+			}
+			
+			if(query == null)
+				query = new int[0];
+			
+			G = new Graph(n, u, v, weight);
+			u = v = weight = null;
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 		
+		Metrics.Stop(timer);
+	};
+	
+	/// Summary: Loads a file in the binary format, by copying the ints of the mapped file into the arrays (nothing to decode).
+	/// The file is mapped in windows of CHUNK ints, a multiple of both the size of an edge and of a query.
+	private void ReadBinary(FileChannel channel) throws IOException {
+		
+		IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4 * HEADER).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		if(header.get(1) != VERSION)
+			throw new IOException("Unsupported binary file version " + header.get(1));
+		n = header.get(2);
+		m = header.get(3);
+		l = header.get(4);
+		
+		u = new int[m];
+		v = new int[m];
+		weight = new int[m];
+		query = new int[2 * l];
+		
+		long position = 4L * HEADER;
+		for(int j = 0; j < m; ) {
+			int count = (int) Math.min(m - j, CHUNK / 12);
+			IntBuffer edges = channel.map(FileChannel.MapMode.READ_ONLY, position, 12L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			for(int k = 0; k < count; k++, j++) {
+				u[j] = edges.get(3*k);
+				v[j] = edges.get(3*k+1);
+				weight[j] = edges.get(3*k+2);
+			}
+			position += 12L * count;
+		}
+		
+		for(int j = 0; j < 2 * l; ) {
+			int count = (int) Math.min(2 * l - j, CHUNK / 4);
+			channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(query, j, count);
+			j += count;
+			position += 4L * count;
+		}
+		
+		G = new Graph(n, u, v, weight);
+		u = v = weight = null;
+	}
+	
+	/// Summary: Writes the graph and the queries of this file in the binary format.
+	/// Usage (conversion from the text format): new File("itineraries.5.in").WriteBinary("itineraries.5.bin")
+	public void WriteBinary(String path) {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(G.n).putInt(G.m).putInt(l);
+			
+			for(int j = 0; j < G.m; j++) {
+				if(buffer.remaining() < 12)
+					Flush(channel, buffer);
+				buffer.putInt(G.u[j]).putInt(G.v[j]).putInt(G.weight[j]);
 			}
-			G = new Graph(E); G.n = n;
-			sCurrentLine = br.readLine();
-			line = sCurrentLine.split(" ");
-			l = Integer.parseInt(line[0]);
-			query = new int[l][2];
-			for(int j = 0; j < l; j++){
-				sCurrentLine = br.readLine();
-				line = sCurrentLine.split(" ");
-				query[j][0] = Integer.parseInt(line[0]) - 1;
-				query[j][1] = Integer.parseInt(line[1]) - 1;
+			
+			for(int j = 0; j < 2 * l; j++) {
+				if(buffer.remaining() < 4)
+					Flush(channel, buffer);
+				buffer.putInt(query[j]);
 			}
+			
+			Flush(channel, buffer);
+			
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+	}
+	
+	// Writes the content of the buffer to the channel, and clears it.
+	private static void Flush(FileChannel channel, ByteBuffer buffer) throws IOException {
 		
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	// Returns the number of lines starting in the bytes [from, to) of the file: the first line of the file, and one after each
+	// line break in [from - 1, to - 1).
+	private long CountLines(FileChannel channel, long from, long to) {
 		
-	};
+		Scanner scanner = new Scanner(channel, Math.max(0, from - 1), to);
+		long lines = (from == 0) ? 1 : 0;
+		for(int i = 0; i < scanner.limit - 1; i++)
+			if(scanner.buffer.get(i) == '\n')
+				lines++;
+		
+		return lines;
+	}
+	
+	/// Summary: Parses the lines starting in the bytes [from, to) of the file, the first of which has the index line.
+	/// Returns the number of lines parsed.
+	private long ParseChunk(FileChannel channel, long from, long to, long line) {
+		
+		// The byte before the region tells whether it starts with a new line or in the middle of the previous region's last one.
+		long start = Math.max(0, from - 1);
+		Scanner scanner = new Scanner(channel, start, Math.min(size, to + MARGIN));
+		int last = (int) (to - start); // lines must start before this position
+		
+		if(from > 0)
+			scanner.SkipLine();
+		
+		long parsed = 0;
+		while(scanner.position < last) {
+			
+			if(line >= 1 && line <= m) {
+				int j = (int) (line - 1);
+				u[j] = scanner.ParseInt() - 1; // Subtract 1 because inputs starts from 1 and not from 0.
+				v[j] = scanner.ParseInt() - 1;
+				weight[j] = scanner.ParseInt();
+			}
+			else if(line == m + 1) {
+				int count = scanner.ParseInt();
+				synchronized(this) {
+					if(query == null) {
+						l = count;
+						query = new int[2 * l];
+					}
+				}
+			}
+			else if(line > m + 1 && line - m - 2 < l) {
+				int j = (int) (line - m - 2);
+				query[2*j] = scanner.ParseInt() - 1;
+				query[2*j+1] = scanner.ParseInt() - 1;
+			}
+			
+			scanner.SkipLine();
+			line++;
+			parsed++;
+		}
+		
+		return parsed;
+	}
 	
-	static void Save(String file, int[] noise) {
-		BufferedWriter writer = null;
-		try {
-		    writer = new BufferedWriter(new OutputStreamWriter(
-		          new FileOutputStream(file)));
-		    for(int i = 0; i < noise.length; i++) {
-				writer.write("" + noise[i]);
-				writer.newLine();
-				writer.flush();
+	// Reads integers from a mapped region of the file.
+	private static class Scanner {
+		
+		MappedByteBuffer buffer;
+		int position;
+		int limit;
+		
+		// Maps the bytes [from, to) of the file.
+		Scanner(FileChannel channel, long from, long to) {
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
-		} catch (IOException ex) {
-			ex.printStackTrace();
-		} finally {
-		   try {writer.close();} catch (Exception ex) {}
+			position = 0;
+			limit = (int) (to - from);
+		}
+		
+		// Reads the next integer, skipping the blanks before it.
+		int ParseInt() {
+			
+			while(position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t'))
+				position++;
+			
+			boolean negative = (position < limit && buffer.get(position) == '-');
+			if(negative)
+				position++;
+			
+			int value = 0;
+			for(byte c; position < limit && (c = buffer.get(position)) >= '0' && c <= '9'; position++)
+				value = 10 * value + (c - '0');
+			
+			return negative ? -value : value;
+		}
+		
+		// Moves after the next line break.
+		void SkipLine() {
+			
+			while(position < limit && buffer.get(position) != '\n')
+				position++;
+			position++;
 		}
 	}
 	
@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/// The Generator class writes synthetic inputs in the text format read by File, to benchmark on graphs of any size and shape.
+/// The output only depends on the settings and the seed. Edges and queries are generated one at a time and encoded straight
+/// into a buffer written to the file whenever it is full, so the memory used does not depend on the size of the graph.
+/// Shapes ("shape="):
+///  - random: a random spanning tree (each vertex joined to an earlier one), plus m - n + 1 edges between random vertices;
+///  - grid: a square grid of about n vertices, each joined to its right and lower neighbours (m is ignored);
+///  - path: the path 1 - 2 - ... - n, plus m - n + 1 random chords heavier than all the path, so that the spanning tree is the
+///    whole path (the deepest possible tree);
+///  - star: vertex 1 joined to all the others, plus m - n + 1 random edges heavier than the star;
+///  - powerlaw: as random, but the endpoints are drawn from a Zipf law, so that the degrees follow a power law of exponent
+///    GAMMA, as in scale-free networks: a few vertices have most edges.
+/// Query mixes ("mix="):
+///  - uniform: pairs of random vertices;
+///  - hot: 90% of the queries among HOT frequent pairs (the first ones being the most frequent), 10% uniform;
+///  - clustered: pairs of vertices whose numbers differ by at most n / 1000 (which are close in the grid and path shapes).
+/// Usage: java Generator itineraries.10.in shape=grid n=1000000 queries=1000000 mix=hot seed=7
+public class Generator {
+
+	static final int BUFFER = 1 << 20;
+
+	// Weights are drawn in [1, WEIGHT], and the extra edges of path and star in [WEIGHT + 1, 2 * WEIGHT].
+	static final int WEIGHT = 1000000;
+
+	// Number of frequent pairs of the hot mix.
+	static final int HOT = 1024;
+
+	// Exponent of the power law of the degrees in the powerlaw shape: P(degree = d) ~ d^-GAMMA.
+	static final double GAMMA = 2.5;
+
+	// File holds the queries in an int[] of 2 ints per query.
+	static final long MAX_QUERIES = (Integer.MAX_VALUE - 8) / 2;
+
+	private String shape = "random", mix = "uniform";
+	private int n = 1000;
+	private long m = -1; // by default 3 n
+	private long queries = 1000;
+	private long seed = 1;
+
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private byte[] digits = new byte[20];
+
+	public static void main(String[] args) {
+
+		Generator generator = new Generator();
+
+		for(int i = 1; i < args.length; i++) {
+
+			String[] option = args[i].split("=", 2);
+
+			if(option.length != 2)
+				throw new IllegalArgumentException("Options must be given as key=value: " + args[i]);
+
+			switch(option[0]) {
+			case "shape":
+				if(!option[1].equals("random") && !option[1].equals("grid") && !option[1].equals("path") && !option[1].equals("star")
+				   && !option[1].equals("powerlaw"))
+					throw new IllegalArgumentException("Unknown shape: " + option[1]);
+				generator.shape = option[1];
+				break;
+			case "mix":
+				if(!option[1].equals("uniform") && !option[1].equals("hot") && !option[1].equals("clustered"))
+					throw new IllegalArgumentException("Unknown query mix: " + option[1]);
+				generator.mix = option[1];
+				break;
+			case "n":
+				generator.n = Integer.parseInt(option[1]);
+				break;
+			case "m":
+				generator.m = Long.parseLong(option[1]);
+				break;
+			case "queries":
+				generator.queries = Long.parseLong(option[1]);
+				break;
+			case "seed":
+				generator.seed = Long.parseLong(option[1]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + option[0]);
+			}
+		}
+
+		generator.Write(args[0]);
+	}
+
+	/// Summary: Writes the graph and the queries to the file at path.
+	public void Write(String path) {
+
+		if(n < 2)
+			throw new IllegalArgumentException("The graph needs at least 2 vertices.");
+
+		if(m < 0)
+			m = 3L * n;
+
+		int side = (int) Math.ceil(Math.sqrt(n));
+		if(shape.equals("grid")) {
+			n = side * side;
+			m = 2L * side * (side - 1);
+		}
+		else if(m < n - 1)
+			throw new IllegalArgumentException("The " + shape + " shape needs at least n - 1 edges.");
+
+		if(m > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("File reads at most " + Integer.MAX_VALUE + " edges.");
+
+		if(queries < 0 || queries > MAX_QUERIES)
+			throw new IllegalArgumentException("File reads between 0 and " + MAX_QUERIES + " queries.");
+
+		// Separate generators, so that the queries do not depend on the edges.
+		SplittableRandom random = new SplittableRandom(seed);
+		SplittableRandom queryRandom = random.split();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			this.channel = channel;
+
+			Put(n, ' ');
+			Put(m, '\n');
+
+			switch(shape) {
+			case "random":
+			case "powerlaw":
+				boolean zipf = shape.equals("powerlaw");
+				for(int v = 1; v < n; v++)
+					Edge(zipf ? Zipf(random, v) : random.nextInt(v), v, Weight(random, 0));
+				for(long j = n - 1; j < m; j++)
+					Edge(zipf ? Zipf(random, n) : random.nextInt(n), zipf ? Zipf(random, n) : random.nextInt(n), Weight(random, 0));
+				break;
+			case "grid":
+				for(int v = 0; v < n; v++) {
+					if(v % side != side - 1)
+						Edge(v, v + 1, Weight(random, 0));
+					if(v + side < n)
+						Edge(v, v + side, Weight(random, 0));
+				}
+				break;
+			case "path":
+			case "star":
+				boolean chain = shape.equals("path");
+				for(int v = 1; v < n; v++)
+					Edge(chain ? v - 1 : 0, v, Weight(random, 0));
+				for(long j = n - 1; j < m; j++)
+					Edge(random.nextInt(n), random.nextInt(n), Weight(random, WEIGHT));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown shape: " + shape);
+			}
+
+			Put(queries, '\n');
+
+			int radius = 1 + n / 1000;
+			int[] hot = new int[2 * HOT];
+			for(int i = 0; i < hot.length; i++)
+				hot[i] = queryRandom.nextInt(n);
+
+			for(long i = 0; i < queries; i++) {
+
+				int u, v;
+
+				switch(mix) {
+				case "uniform":
+					u = queryRandom.nextInt(n);
+					v = queryRandom.nextInt(n);
+					break;
+				case "hot":
+					if(queryRandom.nextInt(10) != 0) {
+						int k = Skewed(queryRandom, HOT);
+						u = hot[2*k];
+						v = hot[2*k+1];
+					}
+					else {
+						u = queryRandom.nextInt(n);
+						v = queryRandom.nextInt(n);
+					}
+					break;
+				case "clustered":
+					u = queryRandom.nextInt(n);
+					v = Math.min(n - 1, Math.max(0, u + queryRandom.nextInt(-radius, radius + 1)));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown query mix: " + mix);
+				}
+
+				Put(u + 1, ' '); // Add 1 because the files number the vertices from 1.
+				Put(v + 1, '\n');
+			}
+
+			Drain();
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Writes the edge (u,v) of the given weight, with vertices numbered from 0.
+	private void Edge(int u, int v, int weight) throws IOException {
+
+		Put(u + 1, ' ');
+		Put(v + 1, ' ');
+		Put(weight, '\n');
+	}
+
+	// A weight in [base + 1, base + WEIGHT].
+	private static int Weight(SplittableRandom random, int base) {
+
+		return base + 1 + random.nextInt(WEIGHT);
+
+	}
+
+	// A number in [0, bound), small numbers being much more frequent than large ones (density about x^(-2/3)).
+	private static int Skewed(SplittableRandom random, int bound) {
+
+		double x = random.nextDouble();
+		return Math.min(bound - 1, (int) (bound * x * x * x));
+	}
+
+	// A number k in [0, bound) drawn from a Zipf law, with P(k) ~ (k + 1)^-s: the vertex k then gets a number of edges
+	// proportional to (k + 1)^-s, so that the degrees follow a power law of exponent GAMMA = 1 + 1/s.
+	// Drawn by inverting the distribution function of the continuous law on [1, bound + 1), with no table of the bound weights.
+	private static int Zipf(SplittableRandom random, int bound) {
+
+		double e = 1 - 1 / (GAMMA - 1); // 1 - s
+		double x = Math.pow(1 + random.nextDouble() * (Math.pow(bound + 1.0, e) - 1), 1 / e);
+		return Math.min(bound - 1, (int) x - 1);
+	}
+
+	// Writes the number followed by the separator.
+	private void Put(long value, char separator) throws IOException {
+
+		if(buffer.remaining() < digits.length + 1)
+			Drain();
+
+		int k = digits.length;
+		do {
+			digits[--k] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while(value != 0);
+
+		buffer.put(digits, k, digits.length - k);
+		buffer.put((byte) separator);
+	}
+
+	// Writes the content of the buffer to the file, and clears it.
+	private void Drain() throws IOException {
+
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
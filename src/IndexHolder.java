@@ -0,0 +1,213 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import graph.Graph;
+import tree.Engine;
+
+/// The IndexHolder class keeps answering queries on the current index of a graph while a new index is rebuilt, after changes of
+/// the weights of its edges.
+/// The index is held as an immutable Snapshot, replaced atomically once the next one is built by a background thread. Readers
+/// never lock: they retain the current snapshot (a compare-and-set on its reference count), answer on it, and release it. The
+/// holder keeps one reference on its current snapshot, given up when the snapshot is replaced, so the engine of a snapshot is
+/// dropped as soon as it is replaced and its last reader has left, and a reader can never retain a snapshot already dropped.
+/// Retaining a snapshot costs two atomic operations, so readers should hold it for a whole batch of queries rather than for
+/// each one. Usage:
+///
+///     try (IndexHolder.Snapshot snapshot = holder.Acquire()) { batch.Run(snapshot, query); }
+///
+/// In streaming mode, the changes can be read from a file or a named pipe ("updates=...", see Follow) while the queries are answered.
+public class IndexHolder implements Engine, AutoCloseable {
+
+	/// Summary: Immutable index of one version (epoch) of the graph.
+	public static class Snapshot implements Engine, AutoCloseable {
+
+		public final long epoch;
+
+		private Engine engine;
+		private final AtomicInteger references = new AtomicInteger(1); // the holder's own reference, until it is replaced
+
+		Snapshot(long epoch, Engine engine) {
+
+			this.epoch = epoch;
+			this.engine = engine;
+
+		}
+
+		public int MaxNoise(int u, int v) {
+
+			return engine.MaxNoise(u, v);
+
+		}
+
+		// Adds a reference, unless the snapshot was already dropped.
+		boolean Retain() {
+
+			for(int count = references.get(); count > 0; count = references.get())
+				if(references.compareAndSet(count, count + 1))
+					return true;
+
+			return false;
+		}
+
+		// Removes a reference, dropping the engine with the last one.
+		void Release() {
+
+			if(references.decrementAndGet() == 0)
+				engine = null;
+
+		}
+
+		@Override
+		public void close() {
+
+			Release();
+
+		}
+	}
+
+	private final AtomicReference<Snapshot> current;
+
+	private final Graph G; // only modified by the background thread
+	private final Function<Graph, Engine> builder;
+
+	private final ExecutorService background = Executors.newSingleThreadExecutor();
+	private final ConcurrentLinkedQueue<int[][]> pending = new ConcurrentLinkedQueue<int[][]>(); // changes not applied to G yet
+
+	/// Summary: Holds the index of G made by builder (e.g. G -> new KruskalTree(G)).
+	/// The holder takes G over: its weights are then changed by Update.
+	public IndexHolder(Graph G, Function<Graph, Engine> builder) {
+
+		this.G = G;
+		this.builder = builder;
+		this.current = new AtomicReference<Snapshot>(new Snapshot(0, builder.apply(G)));
+
+	}
+
+	/// Summary: Returns the current snapshot, retained until it is closed.
+	public Snapshot Acquire() {
+
+		while(true) {
+			// Retaining only fails if the snapshot was replaced and dropped in the meantime: the next one is then current.
+			Snapshot snapshot = current.get();
+			if(snapshot.Retain())
+				return snapshot;
+		}
+	}
+
+	/// Summary: Answers a single query on the current snapshot.
+	public int MaxNoise(int u, int v) {
+
+		try (Snapshot snapshot = Acquire()) {
+			return snapshot.MaxNoise(u, v);
+		}
+	}
+
+	/// Summary: Returns the epoch of the current snapshot (the number of rebuilds published so far).
+	public long Epoch() {
+
+		return current.get().epoch;
+
+	}
+
+	/// Summary: Sets the weight of the edges edge[i] to weight[i], and rebuilds the index in the background.
+	/// Changes arriving during a rebuild are applied together by the next one. The returned future completes once a snapshot
+	/// including these changes is published (or with the exception of the builder).
+	public Future<?> Update(int[] edge, int[] weight) {
+
+		if(edge.length != weight.length)
+			throw new IllegalArgumentException("Every changed edge needs a weight.");
+
+		pending.add(new int[][] { edge.clone(), weight.clone() });
+
+		return background.submit(this::Rebuild);
+	}
+
+	// Applies the pending changes to G, then builds and publishes the next snapshot.
+	private void Rebuild() {
+
+		boolean changed = false;
+
+		for(int[][] change = pending.poll(); change != null; change = pending.poll()) {
+			for(int i = 0; i < change[0].length; i++)
+				G.weight[change[0][i]] = change[1][i];
+			changed = true;
+		}
+
+		// Already done by a previous rebuild.
+		if(!changed)
+			return;
+
+		Snapshot next = new Snapshot(current.get().epoch + 1, builder.apply(G));
+		current.getAndSet(next).Release();
+	}
+
+	/// Summary: Applies the changes read from the file at path (e.g. a named pipe), one "j w" line per change: the edge j of the
+	/// graph, numbered from 1 in the order of the input file, gets the weight w. Each line is handed to Update as soon as it is
+	/// read, until the end of the file. A bad line is reported on the standard error and skipped.
+	/// Returns the number of changes applied.
+	public long Follow(String path) {
+
+		long applied = 0, line = 0;
+
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(path))) {
+
+			for(String text = in.readLine(); text != null; text = in.readLine()) {
+
+				line++;
+				String[] field = text.trim().split("\\s+");
+
+				int j = -1, w = -1;
+				if(field.length == 2)
+					try {
+						j = Integer.parseInt(field[0]) - 1;
+						w = Integer.parseInt(field[1]);
+					} catch (NumberFormatException e) {
+						j = -1;
+					}
+
+				if(j < 0 || j >= G.m || w < 0) {
+					System.err.println("Update " + line + " (" + text + "): expected \"j w\", with an edge j in 1 ... " + G.m + " and a weight w >= 0");
+					continue;
+				}
+
+				try {
+					Update(new int[] { j }, new int[] { w });
+				} catch (RejectedExecutionException e) {
+					// The holder was closed meanwhile: the remaining changes are dropped.
+					break;
+				}
+				applied++;
+			}
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return applied;
+	}
+
+	/// Summary: Stops the background thread, after the rebuilds already requested. The current snapshot stays readable.
+	@Override
+	public void close() {
+
+		background.shutdown();
+		try {
+			background.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
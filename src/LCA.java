@@ -1,6 +1,9 @@
 import java.util.*;
 
+import graph.MaxUnionFind;
 import graph.UnionFind;
+import metrics.Metrics;
+import tree.CompactTree;
 import tree.Node;
 import tree.Tree;
 
@@ -237,4 +240,104 @@ public final class LCA {
 		}
 				
 	}
+
+	/// Summary: Tarjan's offline algorithm on a CompactTree, returning the "bottleneck weight" of every query (not the LCA).
+	/// The tree is walked in depth-first order with an explicit stack. When a vertex u is finished, all its children's sets
+	/// have been linked under u in a MaxUnionFind, with the noise of each edge, so that for every finished vertex x below u,
+	/// find(x) is the highest finished ancestor of x and maxToRoot(x) is the maximum noise between them.
+	/// For each query (u,v) with v already finished, LCA(u,v) = find(v); the query is then kept in a list attached to its LCA,
+	/// and answered once the LCA itself is finished, as max( maxToRoot(u), maxToRoot(v) ).
+	/// The queries of each vertex are stored in CSR int arrays (query indices), and the lists per LCA as int linked lists.
+	/// The MaxUnionFind keeps the tree ancestor apart from its balanced sets, and the maxima on balanced virtual trees.
+	/// Complexity: O( (n + q).alpha(n) ), alpha being the inverse Ackermann function.
+	static int[] TarjanLCA(CompactTree T, int[] query) {
+
+		int n = T.n, q = query.length / 2;
+		int[] answers = new int[q];
+
+		// Queries between two components have no LCA.
+		boolean[] joined = new boolean[q];
+		for(int s = 0; s < q; s++) {
+			joined[s] = T.component[query[2*s]] == T.component[query[2*s+1]];
+			if(!joined[s])
+				answers[s] = -1;
+		}
+
+		// Queries per vertex: the queries involving u are byVertex[offset[u]] ... byVertex[offset[u+1] - 1].
+		int[] offset = new int[n + 1];
+		for(int s = 0; s < q; s++)
+			if(joined[s] && query[2*s] != query[2*s+1]) {
+				offset[query[2*s] + 1]++;
+				offset[query[2*s+1] + 1]++;
+			}
+		for(int i = 0; i < n; i++)
+			offset[i + 1] += offset[i];
+
+		int[] byVertex = new int[offset[n]];
+		int[] fill = new int[n];
+		for(int s = 0; s < q; s++)
+			if(joined[s] && query[2*s] != query[2*s+1]) {
+				byVertex[offset[query[2*s]] + fill[query[2*s]]++] = s;
+				byVertex[offset[query[2*s+1]] + fill[query[2*s+1]]++] = s;
+			}
+		fill = null;
+
+		// Queries per LCA, as linked lists: lcaHead[u] is the first query whose LCA is u, lcaNext[s] the following one.
+		int[] lcaHead = new int[n];
+		int[] lcaNext = new int[q];
+		Arrays.fill(lcaHead, -1);
+
+		MaxUnionFind U = new MaxUnionFind(n);
+		boolean[] visited = new boolean[n];
+
+		// DFS stack, with the next child to visit of each vertex in the stack.
+		// The trees are searched one after the other, from their roots (in order[], each root comes before its tree).
+		int[] stack = new int[n];
+		int[] nextChild = T.firstChild.clone();
+		int top = 0;
+
+		for(int r : T.order) {
+
+			if(T.parent[r] != -1)
+				continue;
+
+			stack[top++] = r;
+
+			while(top > 0) {
+
+				int u = stack[top - 1];
+
+				if(nextChild[u] != -1) {
+					int child = nextChild[u];
+					nextChild[u] = T.nextSibling[child];
+					stack[top++] = child;
+					continue;
+				}
+
+				// All children of u are finished, and linked under u.
+				top--;
+				visited[u] = true;
+
+				for(int i = offset[u]; i < offset[u + 1]; i++) {
+
+					int s = byVertex[i];
+					int v = (query[2*s] == u) ? query[2*s+1] : query[2*s];
+
+					if(visited[v]) {
+						int lca = U.find(v);
+						lcaNext[s] = lcaHead[lca];
+						lcaHead[lca] = s;
+					}
+				}
+
+				for(int s = lcaHead[u]; s != -1; s = lcaNext[s])
+					answers[s] = Math.max(U.maxToRoot(query[2*s]), U.maxToRoot(query[2*s+1]));
+
+				if(T.parent[u] != -1)
+					U.link(u, T.parent[u], T.parentWeight[u]);
+			}
+		}
+
+		return answers;
+	}
 }
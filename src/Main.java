@@ -1,59 +1,322 @@
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.LinkedList;
 
+import graph.Edge;
 import graph.Graph;
 import graph.UnionFind;
+import metrics.Metrics;
+import tree.CompactTree;
+import tree.Engine;
+import tree.HeavyLight;
+import tree.IndexFile;
+import tree.JumpPointers;
+import tree.KruskalTree;
+import tree.LiftingIndex;
+import tree.LinkCutTree;
 import tree.Node;
+import tree.Relabeling;
 import tree.Tree;
 
 public class Main {
 
 	public static void main(String[] args) {
 		
+		// Converts a text input into the binary format, for args = { "convert", "itineraries.5.in", "itineraries.5.bin" }.
+		if(args[0].equals("convert")) {
+			new File(args[1]).WriteBinary(args[2]);
+			return;
+		}
+		
+		// Saves the preprocessed index of a graph, for args = { "index", "itineraries.5.in", "itineraries.5.idx" } (see IndexFile).
+		if(args[0].equals("index")) {
+			index(args[1], args[2], Options.Parse(args, 3));
+			return;
+		}
+		
+		// Streaming mode, for args = { "stream", "itineraries.5.in", "2" }: builds the tree of the graph once (ignoring the
+		// queries of the file), then answers the queries read from the standard input on the standard output, as they arrive.
+		// The graph can also be given as an index file, e.g. "itineraries.5.idx", which is loaded instead of rebuilding the trees.
+		// With "updates=changes.txt" (e.g. a named pipe), the weights of the edges change meanwhile (see IndexHolder).
+		if(args[0].equals("stream")) {
+			stream(args[1], Integer.parseInt(args[2]), Options.Parse(args, 3));
+			return;
+		}
+		
 		// Example of execution, for args[0] = "itineraries.5.in", args[1] = 2 (test 2).
-		test(args[0],Integer.parseInt(args[1]));
+		// Further arguments are options, e.g. "mst=boruvka threads=16" (see Options).
+		// The graph can also be given as an index file, e.g. "itineraries.5.idx queries=itineraries.5.in" (see test).
+		test(args[0],Integer.parseInt(args[1]),Options.Parse(args, 2));
 		
 		// To compare the times of each version of the algorithm (without the spanning tree generation time), execute
 		// timeTest(String input);
 	}
 	
+	// Executes a single test, with the default options
+	public static int[] test(String input, int version){
+		
+		return test(input, version, new Options());
+	}
+	
 	// Executes a single test
-	public static int[] test(String input, int version){	
+	public static int[] test(String input, int version, Options options){	
+		
+		assert(version >= 1 && version <= 7);
+		
+		if(IndexFile.IsIndex(input))
+			return testIndex(input, version, options);
 		
-		assert(version == 1 || version == 2 || version == 3);
+		options.CheckStore(version, false);
 		
 		// Creates a graph from the file, and loads the queries.
-		File f = new File(input);
+		File f = new File(input, options.ParseThreads());
 		Graph G = f.G;
-		int[][] query = f.query;
+		int[] query = f.query;
 		
-		// Creates a minimum spanning tree from G.
+		// Creates a minimum spanning tree from G (then a rooted tree, or its Kruskal reconstruction tree for the fourth version).
 		
-		Tree T = new Tree(G);
+		Edge[] E = options.MST(G);
 		
-		// Creates an array of Query objects
-		Query[] q = Query.Array(query, T);
+		// Renumbers the vertices along the tree, if requested (e.g. "relabel=bfs"): the trees are then built on the new numbers,
+		// and the queries translated to them.
+		Relabeling R = options.Relabel(E, G.n);
+		if(R != null) {
+			E = R.Apply(E);
+			query = R.Translate(query);
+		}
+		
+		int[] noise;
+		
+		// The answers are written to the output file as they are computed.
+		try (ResultWriter writer = ResultWriter.Open(options.Output(input), options.binaryOutput, options.asyncOutput);
+			 Batch batch = new Batch(options.threads, writer, options.order)) {
+			
+			switch(version) {
+			case 1:
+				noise = itineraries_v1(options.Tree(E, G.n),query,batch);
+				break;
+			case 2:
+				noise = itineraries_v2(options.Tree(E, G.n),query,batch,options);
+				break;
+			case 3:
+				noise = itineraries_v3(options.Tree(E, G.n),query,batch);
+				break;
+			case 4:
+				noise = itineraries_v4(new KruskalTree(E, G.n),query,batch);
+				break;
+			case 5:
+				noise = itineraries_v5(new LinkCutTree(E, G.n),query,batch);
+				break;
+			case 6:
+				noise = itineraries_v6(new HeavyLight(options.Tree(E, G.n)),query,batch);
+				break;
+			case 7:
+				noise = itineraries_v7(options.Tree(E, G.n),query,batch);
+				break;
+			default:
+				noise = null;
+			}
+		}
+		
+		// Writes the metrics of the run, if enabled (-Dmetrics=report.json).
+		Metrics.Save();
+		
+		return noise;
+	}
+	
+	// Executes a single test on the graph saved in an index file, with the queries of the input file given by "queries=...",
+	// whose edges are ignored (a file "n 0", then the queries, is enough). Only the index needed by the version is loaded
+	// from the file (see IndexFile): the answers are written to the output file of the queries.
+	static int[] testIndex(String input, int version, Options options){
+		
+		options.CheckStore(version, true);
+		
+		if(options.queries == null)
+			throw new IllegalArgumentException("The queries of an index file must be given by queries=<input file>.");
+		if(!options.relabel.equals("none"))
+			throw new IllegalArgumentException("Index files keep the numbers of the input file, and cannot be relabeled.");
+		
+		int[] query = new File(options.queries, options.ParseThreads()).query;
 		
 		int[] noise;
 		
+		try (ResultWriter writer = ResultWriter.Open(options.Output(options.queries), options.binaryOutput, options.asyncOutput);
+			 Batch batch = new Batch(options.threads, writer, options.order)) {
+			
+			switch(version) {
+			case 1:
+				noise = itineraries_v1(IndexFile.Tree(input),query,batch);
+				break;
+			case 2:
+				noise = itineraries_v2(IndexFile.Lifting(input, options.store),batch.Reorders() ? IndexFile.Tree(input).Preorder() : null,query,batch);
+				break;
+			case 3:
+				noise = itineraries_v3(IndexFile.Tree(input),query,batch);
+				break;
+			case 4:
+				noise = itineraries_v4(IndexFile.Kruskal(input),query,batch);
+				break;
+			case 6:
+				noise = itineraries_v6(new HeavyLight(IndexFile.Tree(input)),query,batch);
+				break;
+			case 7:
+				noise = itineraries_v7(IndexFile.Tree(input),query,batch);
+				break;
+			default:
+				throw new IllegalArgumentException("Version " + version + " cannot be answered from an index file.");
+			}
+		}
+		
+		Metrics.Save();
+		
+		return noise;
+	}
+	
+	// Builds the trees of the graph of the input file (the rooted tree, its lifting index and the Kruskal reconstruction tree),
+	// and saves them to an index file. The lifting tables can be built off-heap ("store=direct") when they exceed a Java array.
+	public static void index(String input, String output, Options options){
+		
+		File f = new File(input, options.ParseThreads());
+		Graph G = f.G;
+		f = null;
+		
+		if(!options.relabel.equals("none"))
+			throw new IllegalArgumentException("Index files keep the numbers of the input file, and cannot be relabeled.");
+		
+		Edge[] E = options.MST(G);
+		
+		CompactTree T = options.Tree(E, G.n);
+		
+		new IndexFile(T, options.Lifting(T), new KruskalTree(E, G.n)).Save(output);
+		
+		Metrics.Save();
+	}
+	
+	// Answers the queries of the standard input with an online version (1, 2, 4, 5, 6 or 7) of the algorithm, on the tree of the graph
+	// of the input file (a graph, or an index file), writing the answers to the standard output.
+	public static long stream(String input, int version, Options options){
+		
+		options.CheckStore(version, IndexFile.IsIndex(input));
+		
+		// Only the index needed by the version is loaded from an index file: the lifting tables are copied into the stores
+		// ("store=heap" or "store=direct"), or read in place ("store=mapped").
+		if(IndexFile.IsIndex(input)) {
+			
+			if(options.updates != null)
+				throw new IllegalArgumentException("Index files hold no edges, and cannot be updated: give the graph file instead.");
+			
+			switch(version) {
+			case 1:
+				CompactTree T = IndexFile.Tree(input);
+				return stream(Naive(T), T.n, options);
+			case 2:
+				LiftingIndex L = IndexFile.Lifting(input, options.store);
+				return stream(L, L.n, options);
+			case 4:
+				KruskalTree K = IndexFile.Kruskal(input);
+				return stream(K, K.n, options);
+			case 6:
+				HeavyLight H = new HeavyLight(IndexFile.Tree(input));
+				return stream(H, H.n, options);
+			case 7:
+				JumpPointers J = new JumpPointers(IndexFile.Tree(input));
+				return stream(J, J.n, options);
+			default:
+				throw new IllegalArgumentException("Version " + version + " cannot be answered from an index file.");
+			}
+		}
+		
+		File f = new File(input, options.ParseThreads());
+		Graph G = f.G;
+		f = null;
+		
+		if(options.updates == null)
+			return stream(Build(G, version, options), G.n, options);
+		
+		// The index is rebuilt in the background after each change read from the updates file, while the queries are answered
+		// on the current one.
+		try (IndexHolder holder = new IndexHolder(G, H -> Build(H, version, options))) {
+			
+			Thread reader = new Thread(() -> holder.Follow(options.updates), "index-updates");
+			reader.setDaemon(true);
+			reader.start();
+			
+			return stream(holder, G.n, options);
+		}
+	}
+	
+	// Builds the engine of an online version (1, 2, 4, 5, 6 or 7) on the spanning tree of G.
+	static Engine Build(Graph G, int version, Options options){
+		
+		Engine engine;
+		
+		Edge[] E = options.MST(G);
+		
+		// The engine is built on the new numbers, and translates each query to them.
+		Relabeling R = options.Relabel(E, G.n);
+		if(R != null)
+			E = R.Apply(E);
+		
 		switch(version) {
 		case 1:
-			noise = itineraries_v1(T,q);
+			engine = Naive(options.Tree(E, G.n));
 			break;
 		case 2:
-			noise = itineraries_v2(T,q);
+			engine = options.Lifting(options.Tree(E, G.n));
+			break;
+		case 4:
+			engine = new KruskalTree(E, G.n);
+			break;
+		case 5:
+			engine = new LinkCutTree(E, G.n);
 			break;
-		case 3:
-			noise = itineraries_v3(T,q);
+		case 6:
+			engine = new HeavyLight(options.Tree(E, G.n));
+			break;
+		case 7:
+			engine = new JumpPointers(options.Tree(E, G.n));
 			break;
 		default:
-			noise = null;
+			throw new IllegalArgumentException("Version " + version + " cannot answer queries one by one.");
 		}
 		
+		return R == null ? engine : R.Translate(engine);
+	}
+	
+	// Answers the queries of the standard input with the engine on n vertices (behind an AnswerCache if requested), writing the answers to the
+	// standard output.
+	static long stream(Engine engine, int n, Options options){
 		
-		File.Save("itineraries."+input.charAt(12)+".out.txt", noise);
+		return stream(engine, null, n, options);
+	}
+	
+	// Same, on the current snapshot of the holder.
+	static long stream(IndexHolder holder, int n, Options options){
 		
-		return noise;
+		return stream(null, holder, n, options);
+	}
+	
+	private static long stream(Engine engine, IndexHolder holder, int n, Options options){
+		
+		AnswerCache cache = null;
+		if(options.cache > 0)
+			cache = (holder != null) ? new AnswerCache(holder, options.cache) : new AnswerCache(engine, options.cache);
+		
+		try (ResultWriter writer = new ResultWriter(Channels.newChannel(System.out), options.binaryOutput, options.asyncOutput);
+			 Batch batch = new Batch(options.threads, writer)) {
+			
+			if(cache != null)
+				return new QueryStream(cache, n, batch).Run(System.in);
+			
+			return (holder != null ? new QueryStream(holder, n, batch) : new QueryStream(engine, n, batch)).Run(System.in);
+		}
+		finally {
+			if(cache != null)
+				System.err.println("cache: " + cache.Hits() + " hits, " + cache.Misses() + " misses");
+			if(holder != null)
+				System.err.println("updates: " + holder.Epoch() + " rebuilds published");
+			Metrics.Save();
+		}
 	}
 	
 	// Executes all tests once, comparing the times. Note that the third version has a higher than expected executing time due to a the use of high level data structures (high constant)
@@ -62,7 +325,7 @@ public class Main {
 		// Creates a graph from the file, and loads the queries.
 		File f = new File(input);
 		Graph G = f.G;
-		int[][] query = f.query;
+		int[] query = f.query;
 		
 		// Creates a minimum spanning tree from G.
 		
@@ -86,9 +349,99 @@ public class Main {
 		itineraries_v3(T,q);
 		time = System.currentTimeMillis() - time;
 		System.out.println("time of "+ input +" (v3) = "+time+" milliseconds");
+		
+		// Same engines on the array-based tree, on a single thread.
+		CompactTree C = new CompactTree(G);
+		Batch batch = new Batch(1, null);
+		
+		time = System.currentTimeMillis();
+		itineraries_v1(C,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v1, compact) = "+time+" milliseconds");
+		
+		time = System.currentTimeMillis();
+		itineraries_v2(C,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v2, compact) = "+time+" milliseconds");
+		
+		time = System.currentTimeMillis();
+		itineraries_v3(C,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v3, compact) = "+time+" milliseconds");
+		
+		KruskalTree K = new KruskalTree(G);
+		
+		time = System.currentTimeMillis();
+		itineraries_v4(K,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v4) = "+time+" milliseconds");
+		
+		LinkCutTree L = new LinkCutTree(Tree.MST(G), G.n);
+		
+		time = System.currentTimeMillis();
+		itineraries_v5(L,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v5) = "+time+" milliseconds");
+		
+		HeavyLight H = new HeavyLight(C);
+		
+		time = System.currentTimeMillis();
+		itineraries_v6(H,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v6) = "+time+" milliseconds");
+		
+		time = System.currentTimeMillis();
+		itineraries_v7(C,query,batch);
+		time = System.currentTimeMillis() - time;
+		System.out.println("time of "+ input +" (v7) = "+time+" milliseconds");
 			
 	}
 	
+	// Compares the heap used per vertex by the Node-based Tree and by the CompactTree, before and after preprocessing.
+	// The values are measured from the used heap after a full garbage collection, so run it with a fixed heap (-Xms = -Xmx).
+	public static void memoryTest(String input){
+		
+		File f = new File(input);
+		Graph G = f.G;
+		
+		long before = UsedHeap();
+		Tree T = new Tree(G);
+		long tree = UsedHeap() - before;
+		LCA.PreProcess(T);
+		long lifting = UsedHeap() - before - tree;
+		
+		System.out.println("heap of "+ input +" (Tree) = "+ tree / G.n +" + "+ lifting / G.n +" bytes per vertex (tree + preprocessing)");
+		
+		before = UsedHeap();
+		CompactTree C = new CompactTree(G);
+		tree = UsedHeap() - before;
+		LiftingIndex I = new LiftingIndex(C);
+		lifting = UsedHeap() - before - tree;
+		
+		System.out.println("heap of "+ input +" (CompactTree) = "+ tree / G.n +" + "+ lifting / G.n +" bytes per vertex (tree + preprocessing)");
+		
+		before = UsedHeap();
+		CompactTree D = new CompactTree(G);
+		tree = UsedHeap() - before;
+		JumpPointers J = new JumpPointers(D);
+		lifting = UsedHeap() - before - tree;
+		
+		System.out.println("heap of "+ input +" (JumpPointers) = "+ tree / G.n +" + "+ lifting / G.n +" bytes per vertex (tree + preprocessing)");
+		
+		// Keeps the trees reachable until all the measures have been taken.
+		assert(T.node.length == C.n && I.n == C.n && J.n == C.n);
+	}
+	
+	// Returns the number of bytes used in the heap after a garbage collection.
+	private static long UsedHeap() {
+		
+		Runtime r = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		
+		return r.totalMemory() - r.freeMemory();
+	}
+	
 	// Simple naive first version
 	// Traverses all nodes in the most pleasant path between u and v, passing through the common ancestor.
 	static int[] itineraries_v1(Tree tree, Query[] q) {
@@ -97,7 +450,8 @@ public class Main {
 		
 		for(int i = 0; i < q.length; i++) {
 			
-			Query query = q[i];
+			// Walks on a copy, so that the shared queries are left untouched for the other versions.
+			Query query = new Query(q[i].u, q[i].v);
 			if(query.u.height < query.v.height) {
 				Node temp = query.u;
 				query.u = query.v;
@@ -178,6 +532,108 @@ public class Main {
 		return answers;
 	}
 	
+	// Naive version on a CompactTree.
+	static int[] itineraries_v1(CompactTree T, int[] query, Batch batch) {
+
+		return batch.Run(Naive(T), query, T::Preorder);
+	}
+	
+	// Naive engine on a CompactTree: climbs from both vertices towards their common ancestor.
+	static Engine Naive(CompactTree T) {
+		
+		return (u, v) -> {
+			
+			if(T.component[u] != T.component[v])
+				return -1;
+			
+			if(T.depth[u] < T.depth[v]) {
+				int temp = u;
+				u = v;
+				v = temp;
+			}
+			
+			int maxNoise = 0;
+			
+			while(T.depth[u] != T.depth[v]) {
+				maxNoise = Math.max(maxNoise, T.parentWeight[u]);
+				u = T.parent[u];
+			}
+			
+			while(u != v) {
+				maxNoise = Math.max(maxNoise, Math.max(T.parentWeight[u], T.parentWeight[v]));
+				u = T.parent[u];
+				v = T.parent[v];
+			}
+			
+			return maxNoise;
+			
+		};
+	}
+	
+	// Exponential-step version on a CompactTree.
+	static int[] itineraries_v2(CompactTree T, int[] query, Batch batch) {
+
+		return batch.Run(new LiftingIndex(T), query, T::Preorder);
+	}
+	
+	// Exponential-step version on the LiftingIndex of T built with the options, whose tables may be off-heap (see IntStore).
+	// Only the preorder of T is kept (if the batch reorders the queries), so that T can be collected during the queries.
+	static int[] itineraries_v2(CompactTree T, int[] query, Batch batch, Options options) {
+		
+		LiftingIndex L = options.Lifting(T);
+		int[] preorder = batch.Reorders() ? T.Preorder() : null;
+		T = null;
+		
+		return itineraries_v2(L, preorder, query, batch);
+	}
+	
+	// Exponential-step version on a LiftingIndex, given the preorder of its tree (only needed if the batch reorders the queries).
+	static int[] itineraries_v2(LiftingIndex L, int[] preorder, int[] query, Batch batch) {
+		
+		return batch.Run(L, query, () -> preorder);
+	}
+	
+	// Tarjan's offline algorithm on a CompactTree, returning the max noise of each query.
+	// Being offline, all the answers are only written at the end.
+	static int[] itineraries_v3(CompactTree T, int[] query, Batch batch){
+		
+		Metrics.Timer timer = Metrics.Start(Metrics.QUERY);
+		
+		int[] noise = LCA.TarjanLCA(T, query);
+		
+		Metrics.Stop(timer);
+		Metrics.Add(Metrics.QUERIES, noise.length);
+		
+		batch.Write(noise);
+		
+		return noise;
+	}
+	
+	// Kruskal reconstruction tree version: each query is a constant-time range maximum.
+	static int[] itineraries_v4(KruskalTree K, int[] query, Batch batch) {
+		
+		// The leaves are numbered in Euler tour order, which is already a depth-first order.
+		return batch.Run(K, query, () -> K.position);
+	}
+	
+	// Fifth version: link-cut tree of the spanning tree, which could then receive new edges (see LinkCutTree.Insert).
+	static int[] itineraries_v5(LinkCutTree L, int[] query, Batch batch) {
+		
+		return batch.Run(L, query);
+	}
+	
+	// Sixth version: heavy-light decomposition of the tree, with range maxima over its chains.
+	static int[] itineraries_v6(HeavyLight H, int[] query, Batch batch) {
+		
+		return batch.Run(H, query, () -> H.position);
+	}
+	
+	// Seventh version: skew-binary jump pointers, with two ints per vertex instead of the lifting tables.
+	static int[] itineraries_v7(CompactTree T, int[] query, Batch batch) {
+		
+		return batch.Run(new JumpPointers(T), query, T::Preorder);
+	}
+	
 
 	// Returns whether two arrays are exactly equal.
 	public static boolean Equals(int[] a, int[] b) {
@@ -0,0 +1,167 @@
+import java.util.SplittableRandom;
+
+import graph.Edge;
+import graph.Graph;
+import tree.CompactTree;
+import tree.IntStore;
+import tree.LiftingIndex;
+import tree.Relabeling;
+import tree.Tree;
+
+/// The Options class holds the settings of a run, given on the command line after the input file and the version,
+/// as "key=value" arguments (e.g. "mst=boruvka threads=16").
+public class Options {
+
+	public String mst = "kruskal"; // algorithm building the minimum spanning tree: "kruskal" or "boruvka"
+	public int threads = Runtime.getRuntime().availableProcessors(); // threads used by the parallel algorithms
+	public boolean parallelParse = false; // whether the input file is parsed by several threads ("parse=parallel")
+	public String output = null; // output file ("out=..."), by default the input file name with ".out.txt" instead of ".in"
+	public boolean binaryOutput = false; // whether the answers are written as binary ints ("format=binary") or as text ("format=text")
+	public boolean asyncOutput = false; // whether the answers are written by a background thread ("writer=async") or not ("writer=sync")
+	public int order = QueryOrder.INPUT; // order in which a batch of queries is answered: "input", "tree" (preorder) or "hilbert" (see QueryOrder)
+	public boolean randomRoot = false; // whether the trees are rooted at a random vertex ("root=random") or at their center ("root=center")
+	public long seed = System.nanoTime(); // seed of the random root ("seed=42"), to reproduce a run
+	public String relabel = "none"; // renumbering of the vertices along the spanning tree: "none", "bfs" or "dfs" (see Relabeling)
+	public int store = IntStore.HEAP; // lifting tables of version 2: "heap" (or "arrays"), "direct" (off the heap) or "mapped" (read in place from an index file)
+	public String queries = null; // input file holding the queries ("queries=..."), when the graph is given as an index file (see IndexFile)
+	public String updates = null; // file (or named pipe) of edge weight changes applied while streaming ("updates=..."), see IndexHolder.Follow
+	public int cache = 0; // number of answers kept by an AnswerCache in front of the engine ("cache=65536"), 0 for none
+
+	// Reads the options from args[from] onwards.
+	public static Options Parse(String[] args, int from) {
+
+		Options o = new Options();
+
+		for(int i = from; i < args.length; i++) {
+
+			String[] option = args[i].split("=", 2);
+
+			if(option.length != 2)
+				throw new IllegalArgumentException("Options must be given as key=value: " + args[i]);
+
+			switch(option[0]) {
+			case "mst":
+				if(!option[1].equals("kruskal") && !option[1].equals("boruvka"))
+					throw new IllegalArgumentException("Unknown MST algorithm: " + option[1]);
+				o.mst = option[1];
+				break;
+			case "threads":
+				o.threads = Integer.parseInt(option[1]);
+				break;
+			case "parse":
+				if(!option[1].equals("sequential") && !option[1].equals("parallel"))
+					throw new IllegalArgumentException("Unknown parsing mode: " + option[1]);
+				o.parallelParse = option[1].equals("parallel");
+				break;
+			case "out":
+				o.output = option[1];
+				break;
+			case "format":
+				if(!option[1].equals("text") && !option[1].equals("binary"))
+					throw new IllegalArgumentException("Unknown output format: " + option[1]);
+				o.binaryOutput = option[1].equals("binary");
+				break;
+			case "writer":
+				if(!option[1].equals("sync") && !option[1].equals("async"))
+					throw new IllegalArgumentException("Unknown writer mode: " + option[1]);
+				o.asyncOutput = option[1].equals("async");
+				break;
+			case "order":
+				o.order = QueryOrder.Parse(option[1]);
+				break;
+			case "root":
+				if(!option[1].equals("center") && !option[1].equals("random"))
+					throw new IllegalArgumentException("Unknown root selection: " + option[1]);
+				o.randomRoot = option[1].equals("random");
+				break;
+			case "seed":
+				o.seed = Long.parseLong(option[1]);
+				break;
+			case "relabel":
+				if(!option[1].equals("none") && !option[1].equals("bfs") && !option[1].equals("dfs"))
+					throw new IllegalArgumentException("Unknown relabeling: " + option[1]);
+				o.relabel = option[1];
+				break;
+			case "store":
+				o.store = IntStore.Parse(option[1].equals("arrays") ? "heap" : option[1]);
+				break;
+			case "queries":
+				o.queries = option[1];
+				break;
+			case "updates":
+				o.updates = option[1];
+				break;
+			case "cache":
+				o.cache = Integer.parseInt(option[1]);
+				if(o.cache < 0)
+					throw new IllegalArgumentException("The cache size cannot be negative: " + option[1]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + option[0]);
+			}
+		}
+
+		return o;
+	}
+
+	// Returns the output file for the given input file.
+	public String Output(String input) {
+
+		if(output != null)
+			return output;
+
+		return (input.endsWith(".in") ? input.substring(0, input.length() - 3) : input) + ".out.txt";
+
+	}
+
+	// Number of threads parsing the input file: 1 unless "parse=parallel".
+	public int ParseThreads() {
+
+		return parallelParse ? Math.max(1, threads) : 1;
+
+	}
+
+	// Computes the minimum spanning tree of G with the selected algorithm.
+	public Edge[] MST(Graph G) {
+
+		return mst.equals("boruvka") ? Tree.BoruvkaMST(G, threads) : Tree.MST(G);
+
+	}
+
+	// Renumbers the vertices along the spanning tree E, or returns null if not requested.
+	public Relabeling Relabel(Edge[] E, int n) {
+
+		return relabel.equals("none") ? null : new Relabeling(E, n, relabel.equals("dfs"));
+
+	}
+
+	// Builds the lifting index of T, on the heap or off-heap ("store=heap" or "store=direct").
+	public LiftingIndex Lifting(CompactTree T) {
+
+		if(store == IntStore.MAPPED)
+			throw new IllegalArgumentException("Only index files can be mapped (store=mapped).");
+
+		return new LiftingIndex(T, store);
+	}
+
+	// Checks that the storage is only set for version 2, the only one with lifting tables, and that only an index file is mapped.
+	public void CheckStore(int version, boolean index) {
+
+		if(store != IntStore.HEAP && version != 2)
+			throw new IllegalArgumentException("The storage (store=...) only applies to version 2, not to version " + version + ".");
+		if(store == IntStore.MAPPED && !index)
+			throw new IllegalArgumentException("Only index files can be mapped (store=mapped).");
+
+	}
+
+	// Builds the rooted tree of E, rooted at its center or at a random vertex.
+	// After a relabeling, it is rooted at vertex 0 (the center), so that its arrays follow the new numbers.
+	public CompactTree Tree(Edge[] E, int n) {
+
+		if(!relabel.equals("none"))
+			return new CompactTree(E, n, 0);
+
+		return new CompactTree(E, n, randomRoot ? new SplittableRandom(seed).nextInt(n) : CompactTree.CENTER);
+	}
+
+}
@@ -24,17 +24,17 @@ public class Query {
 		this.id = id;
 	}
 	
-	// Returns an array of Queries from a primitive data structure (int[][2])
-	public static Query[] Array(int[][] query, Tree T) {
+	// Returns an array of Queries from a primitive data structure (pairs of vertices in an int[])
+	public static Query[] Array(int[] query, Tree T) {
 		
-		int l = query.length;
+		int l = query.length / 2;
 		
 		Query[] q = new Query[l];
 		
 		for( int i = 0; i < l; i++) {
 			
-			Node u = T.node[query[i][0]];
-			Node v = T.node[query[i][1]];
+			Node u = T.node[query[2*i]];
+			Node v = T.node[query[2*i+1]];
 			
 			q[i] = new Query(u, v);
 		}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/// Static class reordering queries for cache locality: on trees much larger than the cache, queries answered in input order
+/// read unrelated parts of the tree one after the other, and nearly every access misses.
+/// Each vertex is given a rank such that close vertices of the tree have close ranks (e.g. its position in a depth-first
+/// preorder), and the queries are sorted by the ranks of their two vertices, either lexicographically (PREORDER) or along a
+/// Hilbert curve (HILBERT), which also keeps the second vertices of consecutive queries close.
+/// The sort is an LSD radix sort of primitive keys, linear in the number of queries.
+public final class QueryOrder {
+
+	private QueryOrder() {};
+
+	public static final int INPUT = 0, PREORDER = 1, HILBERT = 2;
+
+	// Bits of each radix sort digit.
+	static final int DIGIT = 16;
+
+	// Bits of each coordinate on the Hilbert curve: ranks closer than 2^(bits - CURVE) share a cell of the curve, where the
+	// queries keep their input order, which halves the work of both the curve and the sort on large trees.
+	static final int CURVE = 16;
+
+	/// Summary: Returns the order ("input", "tree" or "hilbert") of the given name.
+	public static int Parse(String name) {
+
+		switch(name) {
+		case "input":
+			return INPUT;
+		case "tree":
+			return PREORDER;
+		case "hilbert":
+			return HILBERT;
+		default:
+			throw new IllegalArgumentException("Unknown query order: " + name);
+		}
+	}
+
+	/// Summary: Returns the indices of the first count queries of query[] (pairs of vertices), sorted by the ranks of their
+	/// vertices in rank[] (each rank being in [0, rank.length)), along the Hilbert curve if hilbert is true.
+	public static int[] Sort(int[] query, int count, int[] rank, boolean hilbert) {
+
+		// Ranks fit in bits bits, so keys fit in 2 * bits.
+		int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(rank.length - 1));
+		int shift = 0;
+
+		if(hilbert && bits > CURVE) {
+			shift = bits - CURVE;
+			bits = CURVE;
+		}
+
+		long[] key = new long[count];
+		int[] index = new int[count];
+
+		for(int i = 0; i < count; i++) {
+
+			// The answer is symmetric, so each pair is taken with its lower rank first.
+			int a = rank[query[2*i]], b = rank[query[2*i+1]];
+			int x = Math.min(a, b), y = Math.max(a, b);
+
+			key[i] = hilbert ? Hilbert(x >>> shift, y >>> shift, bits) : ((long) x << bits) | y;
+			index[i] = i;
+		}
+
+		RadixSort(key, index, 2 * bits);
+
+		return index;
+	}
+
+	// Distance of the point (x,y) along the Hilbert curve filling the square of side 2^bits.
+	// Two bits of the distance per level, from the highest one. The quadrant is read from the bits of x and y after the
+	// rotation of the current square (swap: x and y exchanged, flip: both complemented), which is updated without branches.
+	static long Hilbert(int x, int y, int bits) {
+
+		long d = 0;
+		int swap = 0, flip = 0;
+
+		for(int k = bits - 1; k >= 0; k--) {
+
+			int bx = (x >>> k) & 1, by = (y >>> k) & 1;
+
+			int rx = ((bx & ~swap) | (by & swap)) ^ flip;
+			int ry = ((by & ~swap) | (bx & swap)) ^ flip;
+
+			d = (d << 2) | ((3 * rx) ^ ry);
+
+			// The lower quadrants are rotated: swapped, and flipped for the lower right one.
+			int turn = ry ^ 1;
+			flip ^= rx & turn;
+			swap ^= turn;
+		}
+
+		return d;
+	}
+
+	// Sorts the keys of bits bits, moving index[] along: one stable counting pass per digit, from the lowest one.
+	// A digit which is the same for all the keys is skipped.
+	static void RadixSort(long[] key, int[] index, int bits) {
+
+		int count = key.length;
+		long[] keys = key;
+		int[] indices = index;
+		long[] keyTemp = new long[count];
+		int[] indexTemp = new int[count];
+		int[] bucket = new int[1 << DIGIT];
+
+		for(int shift = 0; shift < bits; shift += DIGIT) {
+
+			Arrays.fill(bucket, 0);
+
+			for(int i = 0; i < count; i++)
+				bucket[(int) (key[i] >>> shift) & ((1 << DIGIT) - 1)]++;
+
+			if(count == 0 || bucket[(int) (key[0] >>> shift) & ((1 << DIGIT) - 1)] == count)
+				continue;
+
+			// Start of each bucket.
+			for(int d = 0, start = 0; d < bucket.length; d++) {
+				int size = bucket[d];
+				bucket[d] = start;
+				start += size;
+			}
+
+			for(int i = 0; i < count; i++) {
+				int j = bucket[(int) (key[i] >>> shift) & ((1 << DIGIT) - 1)]++;
+				keyTemp[j] = key[i];
+				indexTemp[j] = index[i];
+			}
+
+			long[] k = key;
+			key = keyTemp;
+			keyTemp = k;
+
+			int[] x = index;
+			index = indexTemp;
+			indexTemp = x;
+		}
+
+		// After an odd number of passes, the sorted arrays are the temporary ones.
+		if(index != indices) {
+			System.arraycopy(key, 0, keys, 0, count);
+			System.arraycopy(index, 0, indices, 0, count);
+		}
+	}
+
+}
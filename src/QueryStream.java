@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import tree.Engine;
+
+/// The QueryStream class answers queries as they arrive on an input stream (e.g. the standard input, or a pipe), one "u v" pair
+/// per line with vertices numbered from 1, and writes each answer as soon as its chunk of queries is done.
+/// A reader thread parses the input into chunks of at most CAPACITY queries, and hands a chunk over as soon as it is full or the
+/// input has nothing more available for the moment, so that isolated queries are answered right away.
+/// Only CHUNKS chunks exist, recycled between the reader and the answering thread through two bounded queues: when answering (or
+/// writing) is slower than reading, the reader waits for a free chunk, and stops reading the input. The memory used is therefore
+/// constant, whatever the number of queries.
+/// A line which is not a query "u v" with vertices in 1 ... n (e.g. with a single number, or a sign) is reported on the standard
+/// error with its number, and answered -1, so that a bad line never stops the stream nor shifts the answers of the next ones.
+/// Blank lines are skipped.
+/// The queries can also be answered by an IndexHolder rebuilt while they arrive: each chunk is then answered on the snapshot
+/// current when it starts, retained once for the whole chunk.
+public class QueryStream {
+
+	static final int CAPACITY = 1 << 16; // queries per chunk
+	static final int CHUNKS = 3; // one being read, one waiting, one being answered
+
+	static final int BUFFER = 1 << 16; // bytes read from the input at once
+
+	// A chunk of queries, and the space for their answers.
+	private static class Chunk {
+		int[] query = new int[2 * CAPACITY];
+		int[] noise = new int[CAPACITY];
+		int count;
+	}
+
+	private static final Chunk END = new Chunk(); // handed over by the reader at the end of the input
+
+	private Engine engine;
+	private IndexHolder holder; // if not null, answers the queries instead of the engine
+	private int n;
+	private Batch batch;
+
+	private BlockingQueue<Chunk> free = new ArrayBlockingQueue<Chunk>(CHUNKS);
+	private BlockingQueue<Chunk> ready = new ArrayBlockingQueue<Chunk>(CHUNKS + 1);
+
+	private volatile IOException error; // error of the reader thread
+
+	// The answers are computed by the engine on n vertices, through the batch (and therefore written by the batch's writer).
+	public QueryStream(Engine engine, int n, Batch batch) {
+
+		this.engine = Checked(engine);
+		this.n = n;
+		this.batch = batch;
+
+		for(int i = 0; i < CHUNKS; i++)
+			free.add(new Chunk());
+	}
+
+	// The answers are computed on the current snapshot of the holder.
+	public QueryStream(IndexHolder holder, int n, Batch batch) {
+
+		this((Engine) holder, n, batch);
+		this.holder = holder;
+
+	}
+
+	// The reader stores the invalid queries as (-1, -1).
+	private static Engine Checked(Engine engine) {
+
+		return (u, v) -> (u < 0) ? -1 : engine.MaxNoise(u, v);
+
+	}
+
+	/// Summary: Answers all the queries of the input, until its end.
+	/// Returns the number of queries answered.
+	public long Run(InputStream in) {
+
+		Thread reader = new Thread(() -> Read(in), "query-stream-reader");
+		reader.setDaemon(true);
+		reader.start();
+
+		long answered = 0;
+
+		try {
+			for(Chunk chunk = ready.take(); chunk != END; chunk = ready.take()) {
+
+				if(holder == null)
+					batch.Run(engine, chunk.query, chunk.count, chunk.noise);
+				else
+					try (IndexHolder.Snapshot snapshot = holder.Acquire()) {
+						batch.Run(Checked(snapshot), chunk.query, chunk.count, chunk.noise);
+					}
+				batch.Flush();
+
+				answered += chunk.count;
+				free.put(chunk);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if(error != null)
+			throw new UncheckedIOException(error);
+
+		return answered;
+	}
+
+	// Reader thread: parses the input into chunks.
+	private void Read(InputStream in) {
+
+		byte[] buffer = new byte[BUFFER];
+
+		// State of the parser, kept from one read to the next since a number or a line can be split between two reads.
+		int value = 0;
+		boolean number = false;
+		int[] pair = new int[2];
+		int count = 0; // numbers of the current line
+		boolean invalid = false; // whether the current line holds anything else than digits and blanks
+		long line = 0; // lines read so far
+
+		try {
+			Chunk chunk = free.take();
+			chunk.count = 0;
+
+			for(int length = in.read(buffer); length != -1; length = in.read(buffer)) {
+
+				for(int i = 0; i < length; i++) {
+
+					byte b = buffer[i];
+
+					// A digit continues the current number, anything else ends it.
+					if(b >= '0' && b <= '9') {
+						// Saturated, so that a number too large for an int cannot wrap around into the range of the vertices.
+						value = (value >= Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : 10 * value + (b - '0');
+						number = true;
+						continue;
+					}
+
+					if(number) {
+						if(count < 2)
+							pair[count] = value - 1; // Subtract 1 because inputs starts from 1 and not from 0.
+						count++;
+						value = 0;
+						number = false;
+					}
+
+					// Anything but blanks (e.g. a sign) makes the line invalid.
+					if(b != '\n') {
+						invalid |= (b != ' ' && b != '\t' && b != '\r');
+						continue;
+					}
+
+					Line(chunk, pair, count, invalid, ++line);
+					count = 0;
+					invalid = false;
+
+					if(chunk.count == CAPACITY) {
+						ready.put(chunk);
+						chunk = free.take();
+						chunk.count = 0;
+					}
+				}
+
+				// Nothing more to read for now: the queries already received are answered without waiting.
+				if(chunk.count > 0 && in.available() == 0) {
+					ready.put(chunk);
+					chunk = free.take();
+					chunk.count = 0;
+				}
+			}
+
+			// The last line of the input, if it does not end with a line break.
+			if(number) {
+				if(count < 2)
+					pair[count] = value - 1;
+				count++;
+			}
+			if(count > 0 || invalid)
+				Line(chunk, pair, count, invalid, ++line);
+
+			if(chunk.count > 0)
+				ready.put(chunk);
+
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			ready.add(END);
+		}
+	}
+
+	// Appends the query of the line-th line of the input, holding count numbers (the first two in pair[]), to the chunk.
+	// Blank lines are skipped. A line without exactly two numbers, with another character than digits and blanks, or with a
+	// vertex out of range, is reported and appended as (-1, -1), so that the answers stay in line with the queries.
+	private void Line(Chunk chunk, int[] pair, int count, boolean invalid, long line) {
+
+		if(count == 0 && !invalid)
+			return;
+
+		int u = pair[0], v = pair[1];
+
+		if(invalid || count != 2) {
+			System.err.println("Line " + line + ": a query must be two vertices \"u v\"");
+			u = v = -1;
+		}
+		else if(u < 0 || u >= n || v < 0 || v >= n) {
+			System.err.println("Line " + line + " (" + (u + 1) + " " + (v + 1) + "): vertices must be in 1 ... " + n);
+			u = v = -1;
+		}
+
+		chunk.query[2 * chunk.count] = u;
+		chunk.query[2 * chunk.count + 1] = v;
+		chunk.count++;
+	}
+
+}
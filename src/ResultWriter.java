@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import metrics.Metrics;
+
+/// The ResultWriter class writes the answers of the queries, one per line in text mode, or as little-endian 32-bit ints
+/// in binary mode.
+/// The ints are encoded straight into a reusable byte buffer, which is written to the channel each time it is full.
+/// In asynchronous mode the encoding and writing run on a background thread: Write() only queues the range of answers,
+/// so the caller can keep computing the next ones, and must not modify the range afterwards.
+/// Input/output errors are thrown as UncheckedIOException (from the background thread, by the next call).
+public class ResultWriter implements AutoCloseable {
+
+	static final int BUFFER = 1 << 20;
+
+	private WritableByteChannel channel;
+	private boolean binary;
+	private ExecutorService background; // null in synchronous mode
+
+	private ByteBuffer buffer;
+	private byte[] digits = new byte[11];
+
+	private volatile IOException error; // first error of the background thread, thrown back by the next call
+
+	public ResultWriter(WritableByteChannel channel, boolean binary, boolean async) {
+
+		this.channel = channel;
+		this.binary = binary;
+		this.background = async ? Executors.newSingleThreadExecutor() : null;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+	}
+
+	// Opens (and truncates) the file at path.
+	public static ResultWriter Open(String path, boolean binary, boolean async) {
+
+		try {
+			FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			return new ResultWriter(channel, binary, async);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Writes the answers values[from] ... values[to - 1].
+	public void Write(int[] values, int from, int to) {
+
+		if(background == null) {
+			try {
+				Encode(values, from, to);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+
+		background.execute(() -> {
+			try {
+				if(error == null)
+					Encode(values, from, to);
+			} catch (IOException e) {
+				error = e;
+			}
+		});
+
+		if(error != null)
+			throw new UncheckedIOException(error);
+	}
+
+	// Writes everything still buffered (waiting for the background thread, if any).
+	// Only the writing itself is counted in SAVE, not the wait for the pending ranges, whose encoding is already counted.
+	public void Flush() {
+
+		try {
+			if(background != null)
+				// Queues the flush behind the pending ranges and waits for it.
+				background.submit(() -> { Finish(); return null; }).get();
+			else
+				Finish();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ExecutionException e) {
+			throw new UncheckedIOException(new IOException(e.getCause()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new IOException(e));
+		}
+
+		if(error != null)
+			throw new UncheckedIOException(error);
+	}
+
+	@Override
+	public void close() {
+
+		try {
+			Flush();
+		}
+		finally {
+			if(background != null) {
+				background.shutdown();
+				try {
+					background.awaitTermination(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	// Encodes the values into the buffer, draining it whenever it is full.
+	private void Encode(int[] values, int from, int to) throws IOException {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.SAVE);
+
+		for(int i = from; i < to; i++) {
+
+			if(buffer.remaining() < 12)
+				Drain();
+
+			if(binary) {
+				buffer.putInt(values[i]);
+				continue;
+			}
+
+			// Decimal digits, from the last one.
+			int value = values[i];
+			long rest = Math.abs((long) value);
+			int k = digits.length;
+			do {
+				digits[--k] = (byte) ('0' + rest % 10);
+				rest /= 10;
+			} while(rest != 0);
+			if(value < 0)
+				digits[--k] = '-';
+
+			buffer.put(digits, k, digits.length - k);
+			buffer.put((byte) '\n');
+		}
+
+		Metrics.Stop(timer);
+	}
+
+	// Writes the rest of the buffer, timed in SAVE (Drain is not, since Encode calls it).
+	private void Finish() throws IOException {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.SAVE);
+
+		try {
+			Drain();
+		} finally {
+			Metrics.Stop(timer);
+		}
+	}
+
+	// Writes the content of the buffer to the channel, and clears it.
+	private void Drain() throws IOException {
+
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	// Writes all the answers to a file, synchronously.
+	public static void Save(String path, int[] values, boolean binary) {
+
+		try (ResultWriter writer = Open(path, binary, false)) {
+			writer.Write(values, 0, values.length);
+		}
+	}
+
+}
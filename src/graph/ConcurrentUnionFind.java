@@ -0,0 +1,50 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/// Lock-free version of UnionFind, which can be shared by several threads.
+/// The parents are updated with compare-and-set only: find() halves the paths it walks through, and union() links the root
+/// with the largest index under the other one, so that the parent links always go towards smaller indices and never form a cycle.
+public class ConcurrentUnionFind {
+
+	AtomicIntegerArray parent;
+
+	public ConcurrentUnionFind(int n){
+		parent = new AtomicIntegerArray(n);
+		for(int i = 0; i < n; i++)
+			parent.set(i, i);
+	}
+
+	// find(i) with path halving: every element of the path is pointed to its grandparent.
+	// A failed compare-and-set only means that another thread already shortened this link.
+	public int find(int i){
+		while(true){
+			int p = parent.get(i);
+			if(p == i)
+				return i;
+			int g = parent.get(p);
+			if(p != g)
+				parent.compareAndSet(i, p, g);
+			i = g;
+		}
+	}
+
+	// Merges the sets of i and j. Returns false if they were already the same set.
+	public boolean union(int i, int j){
+		while(true){
+			int irep = find(i);
+			int jrep = find(j);
+			if(irep == jrep)
+				return false;
+			if(irep < jrep){
+				int temp = irep;
+				irep = jrep;
+				jrep = temp;
+			}
+			// Fails (and retries) if irep stopped being a root in the meantime.
+			if(parent.compareAndSet(irep, irep, jrep))
+				return true;
+		}
+	}
+}
@@ -4,12 +4,35 @@ public class Graph {
 	
 	public int m;
 	public int n;
-	public Edge[] E;
+	
+	// The edges, as primitive arrays: edge j goes between u[j] and v[j] with the given weight.
+	public int[] u, v, weight;
 	
 	// Creates a Graph from an array of edges.
 	public Graph(Edge[] E) {
-		this.E = E;
 		this.m = E.length;
+		u = new int[m];
+		v = new int[m];
+		weight = new int[m];
+		for(int j = 0; j < m; j++) {
+			u[j] = E[j].u;
+			v[j] = E[j].v;
+			weight[j] = E[j].weight;
+		}
+	};
+	
+	// Creates a Graph on n vertices from the primitive arrays of its edges.
+	public Graph(int n, int[] u, int[] v, int[] weight) {
+		this.n = n;
+		this.m = u.length;
+		this.u = u;
+		this.v = v;
+		this.weight = weight;
+	};
+	
+	// Returns the edge j as an Edge object.
+	public Edge GetEdge(int j) {
+		return new Edge(u[j], v[j], weight[j]);
 	};
 	
 	// Transforms an array of edges into an array of vertexes, representing the same Graph.
@@ -0,0 +1,158 @@
+package graph;
+
+import java.util.Arrays;
+
+/// Forest of rooted trees, grown by linking a root under another root (e.g. each vertex of a tree under its father once it is
+/// finished, in depth-first order), which answers two questions about an element i: the root of its tree (find), and the
+/// maximum weight of the links on the path from i to this root (maxToRoot).
+/// Both are answered in O(alpha(n)) amortized time (inverse Ackermann), whatever the shape of the trees, by two structures:
+///  - the elements of each tree form a set of a union-find balanced by rank, whose representative keeps the root of the tree
+///    (the root of the tree is therefore stored apart from the root of the set);
+///  - the maxima are kept by the sophisticated LINK / EVAL of Tarjan ("Applications of path compression on balanced trees",
+///    as used by Lengauer and Tarjan for dominators), which compresses paths on balanced virtual trees, each element labeled
+///    with the weight of the link to its father in the real tree.
+public class MaxUnionFind {
+
+	// Union-find of the trees.
+	int[] set;
+	int[] rank;
+	int[] root; // root of the tree, for the representative of its set
+
+	// LINK / EVAL, on the elements numbered from 1 (0 is a sentinel, heavier than any weight).
+	int[] ancestor;
+	int[] label;
+	int[] child;
+	int[] size;
+	int[] weight; // weight of the link from the element to its father (the sentinel's is Integer.MAX_VALUE)
+
+	int[] path; // reused by find() and Compress() to hold the path being compressed
+
+	public MaxUnionFind(int n){
+
+		set = new int[n];
+		rank = new int[n];
+		root = new int[n];
+		for(int i = 0; i < n; i++){
+			set[i] = i;
+			root[i] = i;
+		}
+
+		ancestor = new int[n + 1];
+		label = new int[n + 1];
+		child = new int[n + 1];
+		size = new int[n + 1];
+		weight = new int[n + 1];
+		for(int v = 1; v <= n; v++){
+			label[v] = v;
+			size[v] = 1;
+		}
+		weight[0] = Integer.MAX_VALUE;
+
+		path = new int[16];
+	}
+
+	// Returns the root of the tree of i.
+	public int find(int i){
+
+		return root[Representative(i)];
+
+	}
+
+	// Returns the maximum weight on the path between i and the root of its tree (0 for the root itself).
+	public int maxToRoot(int i){
+
+		int v = i + 1;
+
+		// EVAL(v) of Tarjan: a root keeps its own label, whose weight is 0 until it is linked.
+		if(ancestor[v] == 0)
+			return weight[label[v]];
+
+		Compress(v);
+
+		return Math.max(weight[label[v]], weight[label[ancestor[v]]]);
+	}
+
+	// Links the root r of a tree under the root j of another tree, through a link of the given weight.
+	public void link(int r, int j, int weight){
+
+		assert(find(r) == r && find(j) == j);
+
+		// The tree of r joins the tree of j.
+		int a = Representative(r), b = Representative(j), top = root[b];
+		if(rank[a] > rank[b]){
+			set[b] = a;
+			root[a] = top;
+		}
+		else{
+			set[a] = b;
+			if(rank[a] == rank[b])
+				rank[b]++;
+		}
+
+		Link(j + 1, r + 1, weight);
+	}
+
+	// Representative of the set of i, with path compression, done iteratively.
+	private int Representative(int i){
+
+		int length = 0;
+		while(set[i] != i){
+			if(length == path.length)
+				path = Arrays.copyOf(path, 2 * length);
+			path[length++] = i;
+			i = set[i];
+		}
+		for(int k = 0; k < length; k++)
+			set[path[k]] = i;
+
+		return i;
+	}
+
+	// LINK(v, w) of Tarjan, for maxima: the root w becomes a child of the root v through a link of the given weight.
+	// The virtual tree of w is split along its chain of children so as to keep the virtual trees balanced.
+	private void Link(int v, int w, int linkWeight){
+
+		weight[w] = linkWeight;
+
+		int s = w;
+		while(weight[label[w]] > weight[label[child[s]]]){
+			if(size[s] + size[child[child[s]]] >= 2 * size[child[s]]){
+				ancestor[child[s]] = s;
+				child[s] = child[child[s]];
+			}
+			else{
+				size[child[s]] = size[s];
+				ancestor[s] = child[s];
+				s = child[s];
+			}
+		}
+		label[s] = label[w];
+		size[v] += size[w];
+		if(size[v] < 2 * size[w]){
+			int t = s;
+			s = child[v];
+			child[v] = t;
+		}
+		for(; s != 0; s = child[s])
+			ancestor[s] = v;
+	}
+
+	// COMPRESS(v) of Tarjan, done iteratively: afterwards, ancestor[v] is a virtual root, and label[v] the heaviest element
+	// on the virtual path between them.
+	private void Compress(int v){
+
+		int length = 0;
+		for(int x = v; ancestor[ancestor[x]] != 0; x = ancestor[x]){
+			if(length == path.length)
+				path = Arrays.copyOf(path, 2 * length);
+			path[length++] = x;
+		}
+
+		for(int k = length - 1; k >= 0; k--){
+			int x = path[k], a = ancestor[x];
+			if(weight[label[a]] > weight[label[x]])
+				label[x] = label[a];
+			ancestor[x] = ancestor[a];
+		}
+	}
+}
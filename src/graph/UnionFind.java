@@ -1,5 +1,6 @@
 package graph;
 
+import metrics.Metrics;
 
 public class UnionFind {
 
@@ -17,14 +18,28 @@ public class UnionFind {
     
     // find(i) with path compression, reducing the complexity
     public int find(int i){
+    	if(Metrics.ENABLED)
+    		Metrics.Record(Metrics.FIND_DEPTH, depth(i));
+    	return compress(i);
+    }
+    
+    private int compress(int i){
     	if(i == parent[i]){
     		return i;
     	}
-    	int r = find(parent[i]);
+    	int r = compress(parent[i]);
     	parent[i] = r;
     	return r;
     }
     
+    // Number of links between i and the root of its set.
+    private int depth(int i){
+    	int depth = 0;
+    	for(; i != parent[i]; i = parent[i])
+    		depth++;
+    	return depth;
+    }
+    
     public void union(int i, int j){
     	int irep = find(i);
     	int jrep = find(j);
@@ -0,0 +1,214 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/// Static class collecting the metrics of a run: wall time and allocated bytes of each phase, counters, and histograms.
+/// Metrics are enabled by the system property "metrics" (e.g. -Dmetrics=report.json), read once into the constant ENABLED:
+/// every instrumented place tests it first, so when it is false the JIT removes the instrumentation altogether.
+/// When enabled, the metrics are published as the JMX bean "metrics:type=Metrics", and Save() writes them as JSON to the file
+/// named by the property. All the metrics are atomic (LongAdder, AtomicLongArray), so any thread can record them.
+/// Allocated bytes are those of the thread running the phase (ThreadMXBean), so work handed to other threads is not counted.
+public final class Metrics {
+
+	private Metrics() {};
+
+	public static final boolean ENABLED = System.getProperty("metrics") != null;
+
+	// Phases.
+	public static final int PARSE = 0, MST = 1, TREE = 2, PREPROCESS = 3, QUERY = 4, SAVE = 5, SORT = 6;
+	static final String[] PHASES = { "parse", "mst", "tree", "preprocess", "query", "save", "sort" };
+
+	// Counters.
+	public static final int EDGES_SCANNED = 0, EDGES_FILTERED = 1, EDGES_ACCEPTED = 2, QUERIES = 3;
+	static final String[] COUNTERS = { "edgesScanned", "edgesFiltered", "edgesAccepted", "queries" };
+
+	// Histograms, with one bucket per value from 0 to BUCKETS - 2 and a last bucket for the larger values.
+	public static final int FIND_DEPTH = 0, LEVEL_OUT_JUMPS = 1, FIND_LCA_JUMPS = 2;
+	static final String[] HISTOGRAMS = { "findDepth", "levelOutJumps", "findLcaJumps" };
+	static final int BUCKETS = 64;
+
+	static final LongAdder[] phaseCount = Adders(PHASES.length);
+	static final LongAdder[] phaseNanos = Adders(PHASES.length);
+	static final LongAdder[] phaseBytes = Adders(PHASES.length);
+	static final LongAdder[] counter = Adders(COUNTERS.length);
+	static final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAMS.length * BUCKETS);
+	static final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+	static {
+		if(ENABLED)
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(new Bean(), MetricsMBean.class), new ObjectName("metrics:type=Metrics"));
+			} catch (JMException e) {
+				System.err.println("Metrics could not be published through JMX: " + e);
+			}
+	}
+
+	/// Summary: Measures a phase, from Start() to Stop() (or close()).
+	/// Usage: Metrics.Timer timer = Metrics.Start(Metrics.PARSE); ... Metrics.Stop(timer);
+	/// or try (Metrics.Timer timer = Metrics.Start(Metrics.PARSE)) { ... }. Start returns null when disabled.
+	public static final class Timer implements AutoCloseable {
+
+		private final int phase;
+		private final long start, bytes;
+
+		Timer(int phase) {
+
+			this.phase = phase;
+			this.bytes = AllocatedBytes();
+			this.start = System.nanoTime();
+
+		}
+
+		@Override
+		public void close() {
+
+			phaseNanos[phase].add(System.nanoTime() - start);
+			phaseBytes[phase].add(AllocatedBytes() - bytes);
+			phaseCount[phase].increment();
+		}
+	}
+
+	public static Timer Start(int phase) {
+
+		return ENABLED ? new Timer(phase) : null;
+
+	}
+
+	public static void Stop(Timer timer) {
+
+		if(ENABLED && timer != null)
+			timer.close();
+
+	}
+
+	public static void Add(int counter, long value) {
+
+		if(ENABLED)
+			Metrics.counter[counter].add(value);
+
+	}
+
+	// Adds one to the bucket of value in the histogram.
+	public static void Record(int histogram, int value) {
+
+		if(ENABLED)
+			Metrics.histogram.incrementAndGet(histogram * BUCKETS + Math.min(value, BUCKETS - 1));
+
+	}
+
+	public static void MaxDepth(int depth) {
+
+		if(ENABLED)
+			maxDepth.accumulate(depth);
+
+	}
+
+	/// Summary: Returns all the metrics as a JSON object.
+	public static String Report() {
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"enabled\": ").append(ENABLED).append(",\n  \"phases\": {");
+
+		for(int p = 0; p < PHASES.length; p++)
+			json.append(p == 0 ? "\n" : ",\n").append(String.format("    \"%s\": { \"count\": %d, \"ms\": %.3f, \"bytes\": %d }",
+					PHASES[p], phaseCount[p].sum(), phaseNanos[p].sum() / 1e6, phaseBytes[p].sum()));
+
+		json.append("\n  },\n  \"counters\": {");
+		for(int c = 0; c < COUNTERS.length; c++)
+			json.append(c == 0 ? "\n" : ",\n").append(String.format("    \"%s\": %d", COUNTERS[c], counter[c].sum()));
+		json.append(",\n    \"maxDepth\": ").append(maxDepth.get());
+
+		// Histograms as arrays of counts per value, without the trailing empty buckets.
+		json.append("\n  },\n  \"histograms\": {");
+		for(int h = 0; h < HISTOGRAMS.length; h++) {
+			int end = BUCKETS;
+			while(end > 0 && histogram.get(h * BUCKETS + end - 1) == 0)
+				end--;
+			json.append(h == 0 ? "\n" : ",\n").append("    \"").append(HISTOGRAMS[h]).append("\": [");
+			for(int b = 0; b < end; b++)
+				json.append(b == 0 ? "" : ", ").append(histogram.get(h * BUCKETS + b));
+			json.append("]");
+		}
+
+		return json.append("\n  }\n}\n").toString();
+	}
+
+	/// Summary: Writes the report to the file named by the "metrics" property, if enabled.
+	public static void Save() {
+
+		if(!ENABLED)
+			return;
+
+		try {
+			Files.write(Paths.get(System.getProperty("metrics")), Report().getBytes(StandardCharsets.US_ASCII));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Summary: Sets all the metrics back to zero.
+	public static void Reset() {
+
+		for(LongAdder[] adders : new LongAdder[][] { phaseCount, phaseNanos, phaseBytes, counter })
+			for(LongAdder adder : adders)
+				adder.reset();
+		for(int i = 0; i < histogram.length(); i++)
+			histogram.set(i, 0);
+		maxDepth.reset();
+	}
+
+	private static long AllocatedBytes() {
+
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+
+	}
+
+	private static LongAdder[] Adders(int n) {
+
+		LongAdder[] adders = new LongAdder[n];
+		for(int i = 0; i < n; i++)
+			adders[i] = new LongAdder();
+		return adders;
+	}
+
+	// JMX view of the metrics.
+	static class Bean implements MetricsMBean {
+
+		public String getReport() {
+			return Report();
+		}
+
+		public long getEdgesScanned() {
+			return counter[EDGES_SCANNED].sum();
+		}
+
+		public long getEdgesAccepted() {
+			return counter[EDGES_ACCEPTED].sum();
+		}
+
+		public long getQueries() {
+			return counter[QUERIES].sum();
+		}
+
+		public long getMaxDepth() {
+			return maxDepth.get();
+		}
+
+		public void reset() {
+			Reset();
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+/// JMX interface of Metrics (a standard MBean: its getters are the attributes of "metrics:type=Metrics").
+public interface MetricsMBean {
+
+	// The whole report, as JSON.
+	String getReport();
+
+	long getEdgesScanned();
+
+	long getEdgesAccepted();
+
+	long getQueries();
+
+	long getMaxDepth();
+
+	void reset();
+
+}
@@ -0,0 +1,39 @@
+package tree;
+
+import graph.Edge;
+
+/// Summary: Compressed adjacency (CSR) of a forest given by its edges: the neighbours of u are adj[offset[u]] ...
+/// adj[offset[u+1] - 1], joined to u by edges of weights weight[offset[u]] ... weight[offset[u+1] - 1] (kept on request).
+/// Each edge appears twice, once from each end, in the order of E. Complexity is O( n + |E| ).
+final class Adjacency {
+
+	final int[] offset, adj;
+	final int[] weight; // null unless requested
+
+	Adjacency(Edge[] E, int n, boolean weights) {
+
+		offset = new int[n + 1];
+		for(Edge e : E) {
+			offset[e.u + 1]++;
+			offset[e.v + 1]++;
+		}
+		for(int i = 0; i < n; i++)
+			offset[i + 1] += offset[i];
+
+		adj = new int[offset[n]];
+		weight = weights ? new int[offset[n]] : null;
+		int[] fill = new int[n];
+		for(Edge e : E) {
+			int i = offset[e.u] + fill[e.u]++;
+			adj[i] = e.v;
+			if(weights)
+				weight[i] = e.weight;
+
+			i = offset[e.v] + fill[e.v]++;
+			adj[i] = e.u;
+			if(weights)
+				weight[i] = e.weight;
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package tree;
+
+import graph.Edge;
+import graph.Graph;
+import metrics.Metrics;
+
+/// Summary: Minimum Spanning Tree stored as a struct of primitive arrays instead of one Node object per vertex.
+/// Vertex v is simply the index v: its father, the noise towards its father and its depth are read from parallel int arrays,
+/// and its children are chained through firstChild / nextSibling. This removes the per-vertex Node, LinkedList and
+/// powers-of-two objects of Tree, so the whole structure costs a few ints per vertex and is walked without pointer chasing.
+/// If the graph is not connected, this is a forest: one tree per component, each with its own root, and component[] tells
+/// whether two vertices can be joined at all.
+public class CompactTree {
+
+	// Root given to the constructor for the center of each tree (see TreeCenter).
+	public static final int CENTER = -1;
+
+	public int n;
+	public int root; // root of the first tree (the others are the vertices without father)
+	public int maxDepth;
+	public int components; // number of trees
+
+	public int[] parent; // father of each vertex, -1 for the root
+	public int[] parentWeight; // noise between each vertex and its father, 0 for the root
+	public int[] depth;
+	public int[] component; // tree of each vertex, from 0 to components - 1
+
+	public int[] firstChild; // first child of each vertex, -1 for leaves
+	public int[] nextSibling; // next child of the same father, -1 for the last one
+
+	public int[] order; // vertices in breadth-first order, tree by tree, starting from their roots (fathers always come before their children)
+
+	// Empty tree, filled by IndexFile.Tree.
+	CompactTree() {}
+
+	/// Summary: Creates a Minimum Spanning Tree from a Graph, rooted at its center.
+	public CompactTree(Graph G) {
+
+		this(Tree.MST(G), G.n);
+
+	}
+
+	/// Summary: Creates a rooted tree from the n - 1 edges of a spanning tree on n vertices (or a forest, from fewer edges),
+	/// each tree being rooted at its center: the height is then minimal, and only depends on the edges.
+	public CompactTree(Edge[] E, int n) {
+
+		this(E, n, CENTER);
+
+	}
+
+	/// Summary: Creates a rooted tree from the n - 1 edges of a spanning tree on n vertices (or a forest, from fewer edges),
+	/// rooted at the given vertex (e.g. vertex 0 after a Relabeling, so that the breadth-first order follows the numbers),
+	/// or at the center of each tree for CENTER.
+	/// The edges are first packed in a compressed adjacency array (CSR), then a breadth-first search from the root of each
+	/// component fills the parent, noise, depth, component and children arrays. Complexity is O( n ).
+	public CompactTree(Edge[] E, int n, int root) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.TREE);
+
+		this.n = n;
+
+		Adjacency A = new Adjacency(E, n, true);
+		int[] offset = A.offset, adj = A.adj, adjWeight = A.weight;
+
+		parent = new int[n];
+		parentWeight = new int[n];
+		depth = new int[n];
+		component = new int[n];
+		firstChild = new int[n];
+		nextSibling = new int[n];
+		order = new int[n];
+
+		for(int i = 0; i < n; i++) {
+			component[i] = -1;
+			parent[i] = -1;
+			firstChild[i] = -1;
+			nextSibling[i] = -1;
+		}
+
+		// Sets the given root for its tree, then the first vertex not reached yet as the root of each other component,
+		// or the center of each component.
+		TreeCenter center = (root == CENTER) ? new TreeCenter(A, n) : null;
+		maxDepth = 0;
+		components = 0;
+
+		// Breadth-first searches, using order[] itself as the queue.
+		int tail = 0;
+
+		for(int r = (root == CENTER) ? 0 : root, next = 0; tail < n; r = next++) {
+
+			if(component[r] != -1)
+				continue;
+
+			if(center != null)
+				r = center.Of(r);
+
+			if(components == 0)
+				this.root = r;
+
+			component[r] = components++;
+			order[tail] = r;
+			tail = Breadth(tail, tail + 1, offset, adj, adjWeight);
+		}
+
+		Metrics.MaxDepth(maxDepth);
+		Metrics.Stop(timer);
+	}
+
+	/// Summary: Returns the rank of each vertex in a depth-first preorder of the trees (taken one after the other): the vertices
+	/// of any subtree have consecutive ranks, so vertices close in the tree mostly have close ranks. Complexity is O( n ).
+	public int[] Preorder() {
+
+		int[] rank = new int[n];
+		int next = 0;
+
+		for(int r : order) {
+
+			if(parent[r] != -1)
+				continue;
+
+			// Iterative walk: down to the first child, else to the next sibling of the vertex or of its closest ancestor.
+			int v = r;
+			while(true) {
+
+				rank[v] = next++;
+
+				if(firstChild[v] != -1) {
+					v = firstChild[v];
+					continue;
+				}
+
+				while(v != r && nextSibling[v] == -1)
+					v = parent[v];
+
+				if(v == r)
+					break;
+
+				v = nextSibling[v];
+			}
+		}
+
+		return rank;
+	}
+
+	// Breadth-first search from the vertices order[head] ... order[tail - 1], already queued.
+	// Returns the end of their component in order[].
+	private int Breadth(int head, int tail, int[] offset, int[] adj, int[] adjWeight) {
+
+		while(head < tail) {
+
+			int u = order[head++];
+
+			// We set all neighbours of u (except his own father) as children of u.
+			for(int i = offset[u]; i < offset[u + 1]; i++) {
+
+				int v = adj[i];
+
+				if(v == parent[u])
+					continue;
+
+				parent[v] = u;
+				parentWeight[v] = adjWeight[i];
+				depth[v] = depth[u] + 1;
+				component[v] = component[u];
+
+				nextSibling[v] = firstChild[u];
+				firstChild[u] = v;
+
+				order[tail++] = v;
+
+				// depths are always increasing in a BFS.
+				maxDepth = Math.max(maxDepth, depth[v]);
+			}
+		}
+
+		return tail;
+	}
+
+}
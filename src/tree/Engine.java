@@ -0,0 +1,9 @@
+package tree;
+
+/// An Engine answers bottleneck queries on a preprocessed minimum spanning tree (or forest, if the graph is not connected).
+public interface Engine {
+
+	// Returns the maximum noise on the path between the vertices u and v of the tree, or -1 if they are in different components.
+	int MaxNoise(int u, int v);
+
+}
@@ -0,0 +1,153 @@
+package tree;
+
+import metrics.Metrics;
+
+/// Summary: Heavy-light decomposition of a CompactTree, answering bottleneck queries with range maxima over its chains.
+/// The heavy child of a vertex is the child with the largest subtree: following heavy children splits the tree into chains,
+/// and any path crosses at most log(n) of them. The vertices are renumbered by a depth-first search visiting heavy children
+/// first, so that every chain occupies consecutive positions, and all the arrays below are indexed by position: a query
+/// reads the chains it crosses as contiguous ranges, with a sparse table giving the maximum of each range in O(1).
+/// Complexity: O( n.log(n) ) ints and preprocessing time, O( log(n) ) per query.
+public class HeavyLight implements Engine {
+
+	public int n;
+
+	public int[] position; // position of each vertex
+
+	// Indexed by position.
+	public int[] head; // position of the first (highest) vertex of the chain
+	public int[] parent; // position of the father, -1 for a root
+	public int[] depth;
+	public int[] component;
+
+	// Sparse table: table[k * n + p] is the maximum noise between the vertices at positions p ... p + 2^k - 1 and their fathers.
+	public int levels;
+	public int[] table;
+
+	/// Summary: Decomposes the tree T (or forest) into heavy chains.
+	public HeavyLight(CompactTree T) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.PREPROCESS);
+
+		n = T.n;
+
+		// Subtree sizes, from the leaves up (in reverse breadth-first order).
+		int[] size = new int[n];
+		for(int i = n - 1; i >= 0; i--) {
+			int u = T.order[i];
+			size[u]++;
+			if(T.parent[u] != -1)
+				size[T.parent[u]] += size[u];
+		}
+
+		int[] heavy = new int[n];
+		for(int u = 0; u < n; u++) {
+			heavy[u] = -1;
+			for(int c = T.firstChild[u]; c != -1; c = T.nextSibling[c])
+				if(heavy[u] == -1 || size[c] > size[heavy[u]])
+					heavy[u] = c;
+		}
+		size = null;
+
+		position = new int[n];
+		head = new int[n];
+		parent = new int[n];
+		depth = new int[n];
+		component = new int[n];
+		int[] noise = new int[n];
+
+		// Depth-first search, stacking the heavy child last so that it comes right after its father.
+		int[] stack = new int[n];
+		int[] chain = new int[n]; // head of the chain of each stacked vertex
+		int top = 0, next = 0;
+
+		for(int r : T.order) {
+
+			if(T.parent[r] != -1)
+				continue;
+
+			stack[top] = r;
+			chain[top++] = r;
+
+			while(top > 0) {
+
+				int u = stack[--top], h = chain[top];
+				int p = next++;
+
+				position[u] = p;
+				head[p] = position[h];
+				parent[p] = (T.parent[u] == -1) ? -1 : position[T.parent[u]];
+				depth[p] = T.depth[u];
+				component[p] = T.component[u];
+				noise[p] = T.parentWeight[u];
+
+				for(int c = T.firstChild[u]; c != -1; c = T.nextSibling[c])
+					if(c != heavy[u]) {
+						stack[top] = c;
+						chain[top++] = c;
+					}
+
+				if(heavy[u] != -1) {
+					stack[top] = heavy[u];
+					chain[top++] = h;
+				}
+			}
+		}
+
+		// Sparse table over the noise towards the fathers.
+		levels = 32 - Integer.numberOfLeadingZeros(n);
+		table = new int[levels * n];
+
+		System.arraycopy(noise, 0, table, 0, n);
+		for(int k = 1; k < levels; k++)
+			for(int p = 0; p + (1 << k) <= n; p++)
+				table[k * n + p] = Math.max(table[(k - 1) * n + p], table[(k - 1) * n + p + (1 << (k - 1))]);
+
+		Metrics.Stop(timer);
+	}
+
+	/// Summary: Returns the bottleneck weight between the vertices u and v, climbing chain by chain towards their LCA.
+	public int MaxNoise(int u, int v) {
+
+		int a = position[u], b = position[v];
+
+		if(component[a] != component[b])
+			return -1;
+
+		int maxNoise = 0;
+
+		// Climbs from the deeper chain head, taking the whole range of its chain up to the current vertex.
+		while(head[a] != head[b]) {
+
+			if(depth[head[a]] < depth[head[b]]) {
+				int temp = a;
+				a = b;
+				b = temp;
+			}
+
+			maxNoise = Math.max(maxNoise, Max(head[a], a));
+			a = parent[head[a]];
+		}
+
+		if(a == b)
+			return maxNoise;
+
+		// Same chain: the edges below the higher vertex, down to the lower one.
+		if(a > b) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+
+		return Math.max(maxNoise, Max(a + 1, b));
+	}
+
+	// Maximum noise of the positions from ... to (included).
+	private int Max(int from, int to) {
+
+		int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+
+		return Math.max(table[k * n + from], table[k * n + to - (1 << k) + 1]);
+	}
+
+}
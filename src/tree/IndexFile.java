@@ -0,0 +1,294 @@
+package tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/// Summary: Snapshot of the preprocessed index of a graph (its rooted CompactTree, the LiftingIndex of the tree and its
+/// KruskalTree), saved once and loaded at startup instead of parsing the graph and rebuilding everything.
+/// The file is a header followed by the arrays of the three indexes, as little-endian 32-bit ints, in the order in which they
+/// are held in memory, at offsets computed from the header alone (as longs: the lifting tables may exceed 2^31 ints).
+/// Each index is loaded on its own (see Tree, Lifting and Kruskal), so that only the arrays needed by an engine are read:
+/// the arrays are copied in bulk with no decoding at all, and the lifting tables can even be used in place, in a read-only
+/// mapping whose pages are shared through the page cache by all the processes using the same file.
+public class IndexFile {
+
+	// Header: MAGIC, VERSION, n, root, maxDepth, components, log, levels, then the arrays (see Save).
+	static final int MAGIC = 0x49505342; // "BSPI"
+	static final int VERSION = 3;
+	static final int HEADER = 8;
+
+	// Size of the windows of the file mapped (or written) at once.
+	static final int WINDOW = 1 << 26;
+
+	public CompactTree tree;
+	public LiftingIndex lifting;
+	public KruskalTree kruskal;
+
+	public IndexFile(CompactTree tree, LiftingIndex lifting, KruskalTree kruskal) {
+
+		this.tree = tree;
+		this.lifting = lifting;
+		this.kruskal = kruskal;
+
+	}
+
+	// Header of a file, and the positions of its arrays.
+	private static class Layout {
+
+		int n, root, maxDepth, components, log, levels, stride;
+
+		long tree; // parent, parentWeight, depth, component, firstChild, nextSibling, order: n ints each
+		long lifting; // ancestor, ancestorNoise: n * log ints each
+		long kruskal; // position, component: n ints each, then table: levels * stride ints
+		long end;
+
+		Layout(IntBuffer header) {
+
+			n = header.get(2);
+			root = header.get(3);
+			maxDepth = header.get(4);
+			components = header.get(5);
+			log = header.get(6);
+			levels = header.get(7);
+			stride = KruskalTree.Stride(n);
+
+			tree = 4L * HEADER;
+			lifting = tree + 7 * 4L * n;
+			kruskal = lifting + 2 * 4L * n * log;
+			end = kruskal + 2 * 4L * n + 4L * levels * stride;
+		}
+
+		// Position of the i-th array of n ints of the tree.
+		long Tree(int i) {
+
+			return tree + i * 4L * n;
+
+		}
+	}
+
+	/// Summary: Returns whether the file at path is an index file (checking its first bytes only).
+	public static boolean IsIndex(String path) {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+
+			if(channel.size() < 4 * HEADER)
+				return false;
+
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Summary: Saves the index to the file at path. The lifting index must be the one of the tree.
+	public void Save(String path) {
+
+		CompactTree T = tree;
+		LiftingIndex L = lifting;
+		KruskalTree K = kruskal;
+
+		if(L.n != T.n || K.n != T.n)
+			throw new IllegalArgumentException("The indexes of an index file must be built on the same tree.");
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			Output out = new Output(channel);
+
+			out.Put(new int[] { MAGIC, VERSION, T.n, T.root, T.maxDepth, T.components, L.log, K.levels });
+
+			for(int[] array : new int[][] { T.parent, T.parentWeight, T.depth, T.component, T.firstChild, T.nextSibling, T.order })
+				out.Put(array);
+
+			out.Put(L.ancestor);
+			out.Put(L.ancestorNoise);
+
+			for(int[] array : new int[][] { K.position, K.component, K.table })
+				out.Put(array);
+
+			out.Flush();
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Summary: Loads the three indexes saved in the file at path, on the heap.
+	public static IndexFile Load(String path) {
+
+		return new IndexFile(Tree(path), Lifting(path, IntStore.HEAP), Kruskal(path));
+
+	}
+
+	/// Summary: Loads the rooted tree saved in the file at path.
+	public static CompactTree Tree(String path) {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+
+			Layout layout = Header(channel, path);
+			int n = layout.n;
+
+			CompactTree T = new CompactTree();
+			T.n = n;
+			T.root = layout.root;
+			T.maxDepth = layout.maxDepth;
+			T.components = layout.components;
+
+			T.parent = new int[n];
+			T.parentWeight = new int[n];
+			T.depth = new int[n];
+			T.component = new int[n];
+			T.firstChild = new int[n];
+			T.nextSibling = new int[n];
+			T.order = new int[n];
+
+			long position = layout.tree;
+			for(int[] array : new int[][] { T.parent, T.parentWeight, T.depth, T.component, T.firstChild, T.nextSibling, T.order })
+				position = Read(channel, position, array);
+
+			return T;
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Summary: Loads the lifting index saved in the file at path, in stores of the given kind: with IntStore.MAPPED, its
+	/// tables are read in place from the page cache, off-heap, so that loading neither takes time nor heap, whatever the
+	/// size of the graph; with IntStore.HEAP or DIRECT, they are copied in bulk into new stores.
+	public static LiftingIndex Lifting(String path, int kind) {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+
+			Layout layout = Header(channel, path);
+			int n = layout.n, log = layout.log;
+
+			// The depths and components are those of the tree.
+			IntStore depth = IntStore.Read(channel, layout.Tree(2), n, kind);
+			IntStore component = IntStore.Read(channel, layout.Tree(3), n, kind);
+			IntStore ancestor = IntStore.Read(channel, layout.lifting, (long) n * log, kind);
+			IntStore ancestorNoise = IntStore.Read(channel, layout.lifting + 4L * n * log, (long) n * log, kind);
+
+			return new LiftingIndex(n, log, depth, component, ancestor, ancestorNoise);
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/// Summary: Loads the Kruskal reconstruction tree saved in the file at path.
+	public static KruskalTree Kruskal(String path) {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+
+			Layout layout = Header(channel, path);
+			int n = layout.n;
+
+			KruskalTree K = new KruskalTree();
+			K.n = n;
+			K.levels = layout.levels;
+			K.stride = layout.stride;
+
+			K.position = new int[n];
+			K.component = new int[n];
+			K.table = new int[Math.multiplyExact(layout.levels, layout.stride)];
+
+			long position = layout.kruskal;
+			for(int[] array : new int[][] { K.position, K.component, K.table })
+				position = Read(channel, position, array);
+
+			return K;
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Returns the layout of the file, after checking its magic number, its version and its size.
+	private static Layout Header(FileChannel channel, String path) throws IOException {
+
+		IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4 * HEADER).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		if(header.get(0) != MAGIC)
+			throw new IOException(path + " is not an index file");
+		if(header.get(1) != VERSION)
+			throw new IOException("Unsupported index file version " + header.get(1));
+
+		Layout layout = new Layout(header);
+
+		if(layout.end != channel.size())
+			throw new IOException("Index file " + path + " has " + channel.size() + " bytes instead of " + layout.end);
+
+		return layout;
+	}
+
+	// Copies the array stored at the given position of the file, mapped in windows of WINDOW bytes. Returns the position after it.
+	private static long Read(FileChannel channel, long position, int[] array) throws IOException {
+
+		for(int i = 0; i < array.length; ) {
+			int count = Math.min(array.length - i, WINDOW / 4);
+			channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(array, i, count);
+			i += count;
+			position += 4L * count;
+		}
+
+		return position;
+	}
+
+	// Writes ints to a channel through a buffer of WINDOW bytes.
+	private static class Output {
+
+		final FileChannel channel;
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW).order(ByteOrder.LITTLE_ENDIAN);
+		final IntBuffer ints = buffer.asIntBuffer();
+
+		Output(FileChannel channel) {
+
+			this.channel = channel;
+
+		}
+
+		void Put(int[] array) throws IOException {
+
+			for(int i = 0; i < array.length; ) {
+
+				if(!ints.hasRemaining())
+					Flush();
+
+				int count = Math.min(array.length - i, ints.remaining());
+				ints.put(array, i, count);
+				i += count;
+			}
+		}
+
+		void Put(IntStore store) throws IOException {
+
+			for(long i = 0; i < store.Length(); ) {
+
+				if(!ints.hasRemaining())
+					Flush();
+
+				int count = (int) Math.min(store.Length() - i, ints.remaining());
+				store.Get(i, ints.duplicate().limit(ints.position() + count));
+				ints.position(ints.position() + count);
+				i += count;
+			}
+		}
+
+		// Writes the ints of the buffer to the channel.
+		void Flush() throws IOException {
+
+			buffer.position(0).limit(4 * ints.position());
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+			ints.clear();
+		}
+	}
+
+}
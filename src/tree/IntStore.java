@@ -0,0 +1,207 @@
+package tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/// Summary: Array of ints indexed by longs, either on the heap or off-heap, so that the same code reads both.
+/// Off-heap stores are split in chunks of 2^CHUNK ints (1 GB), each one an IntBuffer view of a direct ByteBuffer or of a
+/// read-only mapping of a file: their size is not bounded by the 2^31 elements of a Java array, and they are neither
+/// scanned nor moved by the garbage collector, so the heap and the GC pauses no longer grow with them.
+/// Only the two final classes below extend IntStore, so calls through it stay cheap (at most bimorphic) once compiled.
+public abstract class IntStore {
+
+	// Kinds of storage: an int[] on the heap, direct buffers, or a read-only mapping of a file.
+	public static final int HEAP = 0, DIRECT = 1, MAPPED = 2;
+
+	static final int CHUNK = 28;
+	static final int MASK = (1 << CHUNK) - 1;
+
+	// Number of ints copied from or to a file at once.
+	static final int WINDOW = 1 << 24;
+
+	public abstract int Get(long i);
+
+	public abstract void Set(long i, int value);
+
+	public abstract long Length();
+
+	// Copies the ints from, from + 1, ... into the remaining space of target.
+	abstract void Get(long from, IntBuffer target);
+
+	// Copies the remaining ints of source to from, from + 1, ...
+	abstract void Put(long from, IntBuffer source);
+
+	/// Summary: Returns the kind of storage (HEAP, DIRECT or MAPPED) of the given name.
+	public static int Parse(String name) {
+
+		switch(name) {
+		case "heap":
+			return HEAP;
+		case "direct":
+			return DIRECT;
+		case "mapped":
+			return MAPPED;
+		default:
+			throw new IllegalArgumentException("Unknown storage: " + name);
+		}
+	}
+
+	/// Summary: Returns a new store of length ints, on the heap or in direct buffers.
+	public static IntStore Allocate(long length, int kind) {
+
+		switch(kind) {
+		case HEAP:
+			return Heap(length);
+		case DIRECT:
+			return Direct(length);
+		default:
+			throw new IllegalArgumentException("Only the stores of a file can be mapped.");
+		}
+	}
+
+	/// Summary: Returns a store of length ints on the heap (at most a Java array).
+	public static IntStore Heap(long length) {
+
+		if(length > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("A heap store holds at most " + (Integer.MAX_VALUE - 8) + " ints, not " + length
+											   + ": use an off-heap store (store=direct or store=mapped).");
+
+		return new HeapStore(new int[(int) length]);
+	}
+
+	/// Summary: Returns a store of length ints in direct buffers, outside of the heap (limited by -XX:MaxDirectMemorySize).
+	public static IntStore Direct(long length) {
+
+		IntBuffer[] chunk = new IntBuffer[Chunks(length)];
+
+		for(int c = 0; c < chunk.length; c++)
+			chunk[c] = ByteBuffer.allocateDirect(4 * ChunkLength(length, c)).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+		return new BufferStore(chunk, length);
+	}
+
+	/// Summary: Returns a read-only store of the length little-endian ints at the given position of the file, mapped in memory.
+	/// The mapping stays valid after the channel is closed.
+	public static IntStore Map(FileChannel channel, long position, long length) throws IOException {
+
+		IntBuffer[] chunk = new IntBuffer[Chunks(length)];
+
+		for(int c = 0; c < chunk.length; c++)
+			chunk[c] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * ((long) c << CHUNK), 4L * ChunkLength(length, c))
+							  .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+		return new BufferStore(chunk, length);
+	}
+
+	/// Summary: Returns a store of the length little-endian ints at the given position of the file: mapped in place if kind
+	/// is MAPPED, else copied into a new store of that kind.
+	public static IntStore Read(FileChannel channel, long position, long length, int kind) throws IOException {
+
+		if(kind == MAPPED)
+			return Map(channel, position, length);
+
+		IntStore store = Allocate(length, kind);
+
+		for(long i = 0; i < length; ) {
+			int count = (int) Math.min(length - i, WINDOW);
+			store.Put(i, channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * i, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+			i += count;
+		}
+
+		return store;
+	}
+
+	private static int Chunks(long length) {
+
+		return (int) ((length + MASK) >>> CHUNK);
+
+	}
+
+	private static int ChunkLength(long length, int c) {
+
+		return (int) Math.min(1L << CHUNK, length - ((long) c << CHUNK));
+
+	}
+
+	// Store of an int[].
+	static final class HeapStore extends IntStore {
+
+		final int[] array;
+
+		HeapStore(int[] array) {
+			this.array = array;
+		}
+
+		public int Get(long i) {
+			return array[(int) i];
+		}
+
+		public void Set(long i, int value) {
+			array[(int) i] = value;
+		}
+
+		public long Length() {
+			return array.length;
+		}
+
+		void Get(long from, IntBuffer target) {
+			target.put(array, (int) from, target.remaining());
+		}
+
+		void Put(long from, IntBuffer source) {
+			source.get(array, (int) from, source.remaining());
+		}
+	}
+
+	// Store of chunks of 2^CHUNK ints (the last one being shorter).
+	static final class BufferStore extends IntStore {
+
+		final IntBuffer[] chunk;
+		final long length;
+
+		BufferStore(IntBuffer[] chunk, long length) {
+			this.chunk = chunk;
+			this.length = length;
+		}
+
+		public int Get(long i) {
+			return chunk[(int) (i >>> CHUNK)].get((int) i & MASK);
+		}
+
+		public void Set(long i, int value) {
+			chunk[(int) (i >>> CHUNK)].put((int) i & MASK, value);
+		}
+
+		public long Length() {
+			return length;
+		}
+
+		// Both copies go chunk by chunk, through views limited to the ints copied.
+		void Get(long from, IntBuffer target) {
+
+			while(target.hasRemaining()) {
+				int offset = (int) from & MASK;
+				int count = Math.min(target.remaining(), chunk[(int) (from >>> CHUNK)].capacity() - offset);
+				target.put(chunk[(int) (from >>> CHUNK)].duplicate().position(offset).limit(offset + count));
+				from += count;
+			}
+		}
+
+		void Put(long from, IntBuffer source) {
+
+			while(source.hasRemaining()) {
+				int offset = (int) from & MASK;
+				int count = Math.min(source.remaining(), chunk[(int) (from >>> CHUNK)].capacity() - offset);
+				IntBuffer part = source.duplicate();
+				part.limit(part.position() + count);
+				chunk[(int) (from >>> CHUNK)].duplicate().position(offset).put(part);
+				source.position(source.position() + count);
+				from += count;
+			}
+		}
+	}
+
+}
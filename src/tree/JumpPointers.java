@@ -0,0 +1,110 @@
+package tree;
+
+import metrics.Metrics;
+
+/// Summary: Skew-binary jump pointers over a CompactTree, answering bottleneck queries in O(log(n)) with two extra ints per
+/// vertex, instead of the log(depth) ancestors and noises per vertex of binary lifting (see LiftingIndex).
+/// Besides its father, each vertex v has a single jump: with p its father, jump(v) = jump(jump(p)) if the jumps of p and of
+/// jump(p) have the same length, else p. The jump lengths then follow the skew-binary decomposition of the depth, so that
+/// any ancestor is reached in O(log(n)) steps by taking the jump when it does not overshoot, and the father otherwise.
+/// jumpMax(v) is the maximum noise on the path between v and jump(v).
+/// Only the father, noise, depth and component arrays of the tree are kept, so its other arrays can be freed.
+/// Complexity: O( n ) ints and preprocessing time, O( log(n) ) per query.
+public class JumpPointers implements Engine {
+
+	public int n;
+
+	// Shared with the CompactTree.
+	public int[] parent; // -1 for a root
+	public int[] parentWeight;
+	public int[] depth;
+	public int[] component;
+
+	public int[] jump; // the root for a root
+	public int[] jumpMax; // 0 for a root
+
+	/// Summary: Computes the jump pointers of the tree T (or forest), fathers first in breadth-first order.
+	public JumpPointers(CompactTree T) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.PREPROCESS);
+
+		n = T.n;
+		parent = T.parent;
+		parentWeight = T.parentWeight;
+		depth = T.depth;
+		component = T.component;
+
+		jump = new int[n];
+		jumpMax = new int[n];
+
+		for(int v : T.order) {
+
+			int p = parent[v];
+
+			if(p == -1) {
+				jump[v] = v;
+				jumpMax[v] = 0;
+				continue;
+			}
+
+			int j = jump[p];
+
+			if(depth[p] - depth[j] == depth[j] - depth[jump[j]]) {
+				jump[v] = jump[j];
+				jumpMax[v] = Math.max(parentWeight[v], Math.max(jumpMax[p], jumpMax[j]));
+			}
+			else {
+				jump[v] = p;
+				jumpMax[v] = parentWeight[v];
+			}
+		}
+
+		Metrics.Stop(timer);
+	}
+
+	/// Summary: Returns the bottleneck weight between the vertices u and v: the deeper one climbs to the depth of the other,
+	/// then both climb together up to their LCA.
+	public int MaxNoise(int u, int v) {
+
+		if(component[u] != component[v])
+			return -1;
+
+		if(depth[u] < depth[v]) {
+			int temp = u;
+			u = v;
+			v = temp;
+		}
+
+		int maxNoise = 0;
+
+		while(depth[u] > depth[v]) {
+
+			if(depth[jump[u]] >= depth[v]) {
+				maxNoise = Math.max(maxNoise, jumpMax[u]);
+				u = jump[u];
+			}
+			else {
+				maxNoise = Math.max(maxNoise, parentWeight[u]);
+				u = parent[u];
+			}
+		}
+
+		// At the same depth, both jumps have the same length: they are taken together unless they meet above the LCA.
+		while(u != v) {
+
+			if(jump[u] != jump[v]) {
+				maxNoise = Math.max(maxNoise, Math.max(jumpMax[u], jumpMax[v]));
+				u = jump[u];
+				v = jump[v];
+			}
+			else {
+				maxNoise = Math.max(maxNoise, Math.max(parentWeight[u], parentWeight[v]));
+				u = parent[u];
+				v = parent[v];
+			}
+		}
+
+		return maxNoise;
+	}
+
+}
@@ -0,0 +1,163 @@
+package tree;
+
+import graph.Edge;
+import graph.Graph;
+import graph.UnionFind;
+import metrics.Metrics;
+
+/// Summary: Kruskal reconstruction tree of a graph, answering each bottleneck query in O(1).
+/// The tree is built by replaying the unions of Kruskal's algorithm: the vertices of the graph are its n leaves, and every
+/// union of two sets creates a new internal node, father of the two sets' current heads, carrying the weight of the edge.
+/// The bottleneck between u and v is then the weight of LCA(u,v) in this tree.
+/// Since the weights only increase towards the root, the LCA of two leaves is also the node of maximum weight on the Euler
+/// tour between them. We therefore keep, for the leaves in Euler tour order, the weight of the LCA of each pair of consecutive
+/// leaves, and a sparse table of range maxima over it: a query is two array lookups.
+/// If the graph is not connected, there is one reconstruction tree per component, toured one after the other, and queries
+/// between two components are rejected by comparing their component first.
+public class KruskalTree implements Engine {
+
+	public int n;
+
+	public int[] position; // position of each vertex among the leaves, in Euler tour order
+	public int[] component; // reconstruction tree of each vertex
+
+	// Sparse table: table[k * stride + i] is the maximum LCA weight between the leaves i ... i + 2^k (in Euler tour order).
+	// Each level has one entry per gap between consecutive leaves: stride = max(n - 1, 1), so that a single vertex still has a level.
+	public int stride;
+	public int levels;
+	public int[] table;
+
+	// Empty tree, filled by IndexFile.Kruskal.
+	KruskalTree() {}
+
+	/// Summary: Creates the Kruskal reconstruction tree of G, from the edges accepted by Tree.MST.
+	public KruskalTree(Graph G) {
+
+		this(Tree.MST(G), G.n);
+
+	}
+
+	/// Summary: Creates the Kruskal reconstruction tree from the n - 1 edges of a minimum spanning tree,
+	/// given in the order in which Kruskal's algorithm accepted them (i.e. by increasing weight, as returned by Tree.MST).
+	/// Fewer edges (a minimum spanning forest) give one reconstruction tree per component.
+	/// Complexity: O( n.log(n) ), for the sparse table.
+	public KruskalTree(Edge[] E, int n) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.TREE);
+
+		this.n = n;
+
+		// Nodes 0 ... n-1 are the leaves, node n + i is created by the union of the i-th edge.
+		int size = n + E.length;
+		int[] weight = new int[size];
+		int[] left = new int[E.length];
+		int[] right = new int[E.length];
+
+		UnionFind U = new UnionFind(n);
+		int[] head = new int[n]; // the highest node of the reconstruction tree above each set representative
+		for(int i = 0; i < n; i++)
+			head[i] = i;
+
+		for(int i = 0; i < E.length; i++) {
+
+			int ru = U.find(E[i].u), rv = U.find(E[i].v);
+
+			left[i] = head[ru];
+			right[i] = head[rv];
+			weight[n + i] = E[i].weight;
+
+			U.union(ru, rv);
+			head[U.find(ru)] = n + i;
+		}
+
+		// Euler tour from the root of each tree (the last node created in each set), with an explicit stack.
+		// Two consecutive leaves of the tour are separated by their LCA x: the last leaf of the left subtree of x is followed by
+		// the first leaf of its right subtree. So the right child of x is stacked along with the weight of x, the gap to report
+		// when the next leaf is reached.
+		position = new int[n];
+		component = new int[n];
+		stride = Stride(n);
+		int[] gap = new int[stride];
+
+		int[] stack = new int[size + 1];
+		int[] stackGap = new int[size + 1];
+		int top = 0, leaves = 0, current = 0, components = 0;
+
+		for(int r = 0; r < n; r++) {
+
+			if(U.find(r) != r)
+				continue;
+
+			// The gap before the first leaf of a tree separates two components: it is never read.
+			stack[top] = head[r];
+			stackGap[top++] = 0;
+
+			while(top > 0) {
+
+				int x = stack[--top];
+				current = stackGap[top];
+
+				if(x < n) {
+					if(leaves > 0)
+						gap[leaves - 1] = current;
+					component[x] = components;
+					position[x] = leaves++;
+				}
+				else {
+					stack[top] = right[x - n];
+					stackGap[top++] = weight[x];
+					stack[top] = left[x - n];
+					stackGap[top++] = current;
+				}
+			}
+
+			components++;
+		}
+
+		// Sparse table over the gaps.
+		int m = stride;
+		levels = 32 - Integer.numberOfLeadingZeros(m);
+		table = new int[levels * m];
+
+		System.arraycopy(gap, 0, table, 0, m);
+		for(int k = 1; k < levels; k++)
+			for(int i = 0; i + (1 << k) <= m; i++)
+				table[k * m + i] = Math.max(table[(k - 1) * m + i], table[(k - 1) * m + i + (1 << (k - 1))]);
+
+		Metrics.Stop(timer);
+	}
+
+	// Length of each level of the sparse table for n leaves.
+	static int Stride(int n) {
+
+		return Math.max(n - 1, 1);
+
+	}
+
+	/// Summary: Returns the bottleneck weight between the vertices u and v.
+	/// It is the maximum of the gaps between their two leaves, read from two overlapping power-of-two ranges of the sparse table.
+	/// Complexity: O( 1 )
+	public int MaxNoise(int u, int v) {
+
+		if(component[u] != component[v])
+			return -1;
+
+		int a = position[u], b = position[v];
+
+		if(a == b)
+			return 0;
+
+		if(a > b) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+
+		// gaps a ... b-1
+		int m = stride;
+		int k = 31 - Integer.numberOfLeadingZeros(b - a);
+
+		return Math.max(table[k * m + a], table[k * m + b - (1 << k)]);
+	}
+
+}
@@ -0,0 +1,144 @@
+package tree;
+
+import metrics.Metrics;
+
+/// Summary: Binary-lifting index of a CompactTree (the exponential-step version), held in IntStores with long indices.
+/// Each vertex keeps its ancestors at distances 2^k and the maximum noise up to each of them; a query levels out the deeper
+/// vertex, then lifts both vertices up to their LCA, one jump per power of two.
+/// The stores are on the heap, off-heap in direct buffers, or mapped from an index file (see IndexFile): off-heap, the tables
+/// of n.log ints may exceed the 2^31 elements of a Java array, and stay out of the heap and of the garbage collector.
+/// The query code is the same whatever the storage.
+/// ancestor[v * log + k] is the ancestor of v at a distance 2^k (or the root, if v is less than 2^k deep), and
+/// ancestorNoise[v * log + k] the maximum noise on the path between them: ancestorNoise[v * log] is the noise to the father.
+/// Complexity: O( n.log(n) ) ints and preprocessing time, O( log(n) ) per query.
+public class LiftingIndex implements Engine {
+
+	public int n;
+	public int log;
+
+	public IntStore depth;
+	public IntStore component;
+	public IntStore ancestor;
+	public IntStore ancestorNoise;
+
+	/// Summary: Computes the lifting tables of the tree T (or forest), on the heap.
+	public LiftingIndex(CompactTree T) {
+
+		this(T, IntStore.HEAP);
+
+	}
+
+	/// Summary: Computes the lifting tables of the tree T (or forest), in stores of the given kind (IntStore.HEAP or DIRECT).
+	/// The tree itself is not kept, and can be freed once the index is built.
+	/// Since T.order lists every father before its children, the ancestor 2^k of a vertex is directly the ancestor 2^(k-1)
+	/// of its (already computed) ancestor 2^(k-1). The root is its own ancestor with noise 0, so that the jumps past the root
+	/// simply stay on it.
+	public LiftingIndex(CompactTree T, int kind) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.PREPROCESS);
+
+		n = T.n;
+
+		// log := floor [log2(maxDepth)] + 1, enough for any jump in the tree.
+		log = Math.max(1, 32 - Integer.numberOfLeadingZeros(T.maxDepth));
+
+		depth = IntStore.Allocate(n, kind);
+		component = IntStore.Allocate(n, kind);
+		ancestor = IntStore.Allocate((long) n * log, kind);
+		ancestorNoise = IntStore.Allocate((long) n * log, kind);
+
+		for(int u : T.order) {
+
+			depth.Set(u, T.depth[u]);
+			component.Set(u, T.component[u]);
+
+			long row = (long) u * log;
+
+			ancestor.Set(row, (T.parent[u] == -1) ? u : T.parent[u]);
+			ancestorNoise.Set(row, T.parentWeight[u]);
+
+			for(int k = 1; k < log; k++) {
+
+				long half = (long) ancestor.Get(row + k - 1) * log + k - 1;
+
+				ancestor.Set(row + k, ancestor.Get(half));
+				ancestorNoise.Set(row + k, Math.max(ancestorNoise.Get(row + k - 1), ancestorNoise.Get(half)));
+			}
+		}
+
+		Metrics.Stop(timer);
+	}
+
+	// Index over existing stores (e.g. read from an index file, see IndexFile.Lifting).
+	LiftingIndex(int n, int log, IntStore depth, IntStore component, IntStore ancestor, IntStore ancestorNoise) {
+
+		this.n = n;
+		this.log = log;
+		this.depth = depth;
+		this.component = component;
+		this.ancestor = ancestor;
+		this.ancestorNoise = ancestorNoise;
+
+	}
+
+	/// Summary: Returns the bottleneck weight between the vertices u and v, as LCA.MaxNoise: the deeper vertex is leveled
+	/// out by one jump per bit of the depth difference, then both climb with decreasing powers of two while their ancestors
+	/// differ, which leaves them just below LCA(u,v).
+	public int MaxNoise(int u, int v) {
+
+		if(component.Get(u) != component.Get(v))
+			return -1;
+
+		int du = depth.Get(u), dv = depth.Get(v);
+
+		if(du < dv) {
+			int temp = v;
+			v = u;
+			u = temp;
+			temp = dv;
+			dv = du;
+			du = temp;
+		}
+
+		int maxNoise = 0;
+
+		// Levels out u, one power of two per bit of the depth difference.
+		if(Metrics.ENABLED)
+			Metrics.Record(Metrics.LEVEL_OUT_JUMPS, Integer.bitCount(du - dv));
+
+		for(int space = du - dv; space != 0; space &= space - 1) {
+
+			long i = (long) u * log + Integer.numberOfTrailingZeros(space);
+
+			maxNoise = Math.max(maxNoise, ancestorNoise.Get(i));
+			u = ancestor.Get(i);
+		}
+
+		if(u == v)
+			return maxNoise;
+
+		int jumps = 0;
+
+		// Both vertices are at the same depth: jumps of 2^k with 2^k > depth can only land on the root, so we start below.
+		for(int k = Math.min(log, 32 - Integer.numberOfLeadingZeros(dv)) - 1; k >= 0; k--) {
+
+			long i = (long) u * log + k, j = (long) v * log + k;
+
+			int a = ancestor.Get(i), b = ancestor.Get(j);
+
+			if(a != b) {
+				maxNoise = Math.max(maxNoise, Math.max(ancestorNoise.Get(i), ancestorNoise.Get(j)));
+				u = a;
+				v = b;
+				if(Metrics.ENABLED)
+					jumps++;
+			}
+		}
+
+		Metrics.Record(Metrics.FIND_LCA_JUMPS, jumps);
+
+		// u and v are now the children of LCA(u,v) on each branch.
+		return Math.max(maxNoise, Math.max(ancestorNoise.Get((long) u * log), ancestorNoise.Get((long) v * log)));
+	}
+
+}
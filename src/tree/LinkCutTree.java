@@ -0,0 +1,281 @@
+package tree;
+
+import graph.Edge;
+import metrics.Metrics;
+
+/// Summary: Minimum spanning forest kept up to date as edges are inserted, with a link-cut tree answering bottleneck queries.
+/// Each edge of the forest is a node of its own, between the nodes of its two vertices, so that the maximum of a path is the
+/// maximum over the nodes of its splay trees. Inserting an edge (u,v,w) links u and v if they are not connected yet; otherwise
+/// the heaviest edge of the path between them is cut and its node reused for the new edge, if w is smaller.
+/// Both insertions and queries run in O( log(n) ) amortized time.
+/// The nodes are stored in parallel int arrays: vertices are the nodes 0 ... n-1, edges the nodes n ... 2n-2, recycled through a
+/// free list. Queries restructure the tree (like insertions), so all operations are synchronized: the engine can be shared, but
+/// answers one query at a time.
+public class LinkCutTree implements Engine {
+
+	public int n;
+
+	// Splay trees: children and father of each node. The father of the root of a splay tree is the "path-parent" of its path.
+	private int[] left, right, parent;
+	private boolean[] reversed; // whether the children of the node (in the whole subtree) are to be swapped
+
+	private int[] value; // weight of each edge node (Integer.MIN_VALUE for the vertices)
+	private int[] max; // node of maximum weight in the splay subtree of each node
+
+	private int[] edgeU, edgeV; // vertices of each edge node (at index node - n)
+	private int[] free; // edge nodes not in use
+	private int freeCount;
+
+	private int[] path; // reused by Splay() to push the reversals down
+
+	/// Summary: Creates a forest of n isolated vertices.
+	public LinkCutTree(int n) {
+
+		this.n = n;
+
+		int size = 2 * n - 1;
+		left = new int[size];
+		right = new int[size];
+		parent = new int[size];
+		reversed = new boolean[size];
+		value = new int[size];
+		max = new int[size];
+		path = new int[size];
+
+		for(int x = 0; x < size; x++) {
+			left[x] = right[x] = parent[x] = -1;
+			value[x] = Integer.MIN_VALUE;
+			max[x] = x;
+		}
+
+		edgeU = new int[n - 1];
+		edgeV = new int[n - 1];
+		free = new int[n - 1];
+		for(int i = 0; i < n - 1; i++)
+			free[freeCount++] = size - 1 - i;
+	}
+
+	/// Summary: Creates the minimum spanning forest of the edges E on n vertices, by inserting them one by one.
+	public LinkCutTree(Edge[] E, int n) {
+
+		this(n);
+
+		Metrics.Timer timer = Metrics.Start(Metrics.TREE);
+
+		for(Edge e : E)
+			Insert(e.u, e.v, e.weight);
+
+		Metrics.Stop(timer);
+	}
+
+	/// Summary: Inserts the edge e. See Insert(u, v, weight).
+	public boolean Insert(Edge e) {
+
+		return Insert(e.u, e.v, e.weight);
+
+	}
+
+	/// Summary: Inserts the edge (u,v) with the given weight, keeping the forest minimal.
+	/// Returns whether the forest changed (i.e. the edge joined two trees, or replaced a heavier edge).
+	public synchronized boolean Insert(int u, int v, int weight) {
+
+		if(u == v)
+			return false;
+
+		MakeRoot(u);
+		Access(v);
+
+		if(!SameSplay(u, v)) {
+			int x = free[--freeCount];
+			Set(x, u, v, weight);
+			Link(x, u);
+			Link(x, v);
+			return true;
+		}
+
+		// The splay tree of u now holds exactly the path u ... v.
+		int x = max[u];
+
+		if(value[x] <= weight)
+			return false;
+
+		Cut(x, edgeU[x - n]);
+		Cut(x, edgeV[x - n]);
+
+		Set(x, u, v, weight);
+		Link(x, u);
+		Link(x, v);
+		return true;
+	}
+
+	/// Summary: Returns the bottleneck weight between the vertices u and v, or -1 if they are not connected.
+	public synchronized int MaxNoise(int u, int v) {
+
+		if(u == v)
+			return 0;
+
+		MakeRoot(u);
+		Access(v);
+
+		// u and v are connected if and only if u is now in the splay tree of v (as the first node of its path).
+		int noise = value[max[v]];
+
+		return SameSplay(u, v) ? noise : -1;
+	}
+
+	// Whether x is in the splay tree rooted at root, after which x is the root of its splay tree.
+	// The walk up from x is paid for by splaying x afterwards.
+	private boolean SameSplay(int x, int root) {
+
+		int y = x;
+		while(!IsRoot(y))
+			y = parent[y];
+
+		Splay(x);
+		return y == root;
+	}
+
+	// Sets the edge (u,v) with the given weight on the (isolated) edge node x.
+	private void Set(int x, int u, int v, int weight) {
+
+		edgeU[x - n] = u;
+		edgeV[x - n] = v;
+		value[x] = weight;
+		max[x] = x;
+	}
+
+	// Links x, the root of its tree, under y.
+	private void Link(int x, int y) {
+
+		MakeRoot(x);
+		parent[x] = y;
+	}
+
+	// Cuts the link between the adjacent nodes x and y.
+	private void Cut(int x, int y) {
+
+		MakeRoot(x);
+		Access(y);
+
+		// The path is now x - y, with y at the root of its splay tree and x as its only (left) child.
+		left[y] = -1;
+		parent[x] = -1;
+		Update(y);
+	}
+
+	// Makes x the root of its tree, by reversing the path from the root to x.
+	private void MakeRoot(int x) {
+
+		Access(x);
+		reversed[x] = !reversed[x];
+	}
+
+	// Makes the path from the root to x preferred, x being the last node of the path and the root of its splay tree.
+	private void Access(int x) {
+
+		int last = -1;
+
+		for(int y = x; y != -1; y = parent[y]) {
+			Splay(y);
+			right[y] = last;
+			Update(y);
+			last = y;
+		}
+
+		Splay(x);
+	}
+
+	// Moves x to the root of its splay tree.
+	private void Splay(int x) {
+
+		// Pushes the pending reversals from the root of the splay tree down to x.
+		int length = 0;
+		path[length++] = x;
+		for(int y = x; !IsRoot(y); y = parent[y])
+			path[length++] = parent[y];
+		while(length > 0)
+			Push(path[--length]);
+
+		while(!IsRoot(x)) {
+
+			int y = parent[x];
+
+			if(!IsRoot(y)) {
+				int z = parent[y];
+				Rotate((left[y] == x) == (left[z] == y) ? y : x);
+			}
+
+			Rotate(x);
+		}
+	}
+
+	// Rotates x above its father.
+	private void Rotate(int x) {
+
+		int y = parent[x], z = parent[y];
+
+		if(!IsRoot(y)) {
+			if(left[z] == y)
+				left[z] = x;
+			else
+				right[z] = x;
+		}
+		parent[x] = z;
+
+		if(left[y] == x) {
+			left[y] = right[x];
+			if(right[x] != -1)
+				parent[right[x]] = y;
+			right[x] = y;
+		}
+		else {
+			right[y] = left[x];
+			if(left[x] != -1)
+				parent[left[x]] = y;
+			left[x] = y;
+		}
+		parent[y] = x;
+
+		Update(y);
+		Update(x);
+	}
+
+	// Whether x is the root of its splay tree.
+	private boolean IsRoot(int x) {
+
+		int p = parent[x];
+		return p == -1 || (left[p] != x && right[p] != x);
+	}
+
+	// Swaps the children of x if it is reversed, passing the reversal on to them.
+	private void Push(int x) {
+
+		if(!reversed[x])
+			return;
+
+		int temp = left[x];
+		left[x] = right[x];
+		right[x] = temp;
+
+		if(left[x] != -1)
+			reversed[left[x]] = !reversed[left[x]];
+		if(right[x] != -1)
+			reversed[right[x]] = !reversed[right[x]];
+
+		reversed[x] = false;
+	}
+
+	// Recomputes the maximum of the splay subtree of x from its children.
+	private void Update(int x) {
+
+		int m = x;
+
+		if(left[x] != -1 && value[max[left[x]]] > value[m])
+			m = max[left[x]];
+		if(right[x] != -1 && value[max[right[x]]] > value[m])
+			m = max[right[x]];
+
+		max[x] = m;
+	}
+
+}
@@ -0,0 +1,77 @@
+package tree;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/// Summary: Parallel loops over ranges of ints [from, to), on a ForkJoinPool of a chosen number of threads (rather than the
+/// common pool, so that threads=N is respected). The range is split in halves by fork-join tasks until each part holds at
+/// most grain elements, and each part is handed to the body of the loop, which never shares an index with another part.
+/// A null pool stands for a single thread: the whole range is then run in the calling thread, without any task.
+public final class Parallel {
+
+	private Parallel() {};
+
+	/// Summary: Body of a parallel loop, run on the range [from, to).
+	public interface Range {
+		void Run(int from, int to);
+	}
+
+	/// Summary: Returns a new pool of the given number of threads, or null for a single thread. It must be shut down.
+	public static ForkJoinPool Pool(int threads) {
+
+		return (threads > 1) ? new ForkJoinPool(threads) : null;
+
+	}
+
+	/// Summary: Runs body over [from, to), split in ranges of at most grain elements processed by the pool (or all at once by
+	/// the calling thread, if the pool is null).
+	public static void For(ForkJoinPool pool, int from, int to, int grain, Range body) {
+
+		if(pool == null)
+			body.Run(from, to);
+		else
+			pool.invoke(new Loop(from, to, grain, body));
+	}
+
+	/// Summary: Same as For, on a pool of the given number of threads created for this loop only.
+	public static void For(int threads, int from, int to, int grain, Range body) {
+
+		ForkJoinPool pool = Pool(threads);
+
+		try {
+			For(pool, from, to, grain, body);
+		}
+		finally {
+			if(pool != null)
+				pool.shutdown();
+		}
+	}
+
+	// Fork-join task splitting a Range in halves until it is small enough.
+	private static class Loop extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final int from, to, grain;
+		final Range body;
+
+		Loop(int from, int to, int grain, Range body) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.body = body;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from <= grain)
+				body.Run(from, to);
+			else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Loop(from, middle, grain, body), new Loop(middle, to, grain, body));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package tree;
+
+import graph.Edge;
+import metrics.Metrics;
+
+/// Summary: Renumbering of the vertices along a spanning forest, so that the arrays indexed by vertex are read at nearby
+/// addresses. The numbers of the input file are arbitrary: a walk towards the root reads the parent, depth and lifting
+/// arrays at random places, and nearly every step misses the cache.
+/// Here the new numbers follow a breadth-first order (fathers before their children, siblings together, and each level
+/// of the tree in the order of the level above) or a depth-first preorder (each subtree numbered contiguously), starting
+/// from the center of each tree, new vertex 0 being the center of the first one.
+/// Edges and queries are translated once, before building the trees; answers are indexed by query, so they need no
+/// translation back.
+public class Relabeling {
+
+	public int n;
+	public int[] newId; // new number of each vertex of the input
+	public int[] oldId; // input number of each new vertex
+
+	/// Summary: Renumbers the n vertices along the edges of a spanning forest E, in depth-first preorder if depthFirst is
+	/// true, else in breadth-first order. Each tree starts at its center (see TreeCenter). Complexity is O( n ).
+	public Relabeling(Edge[] E, int n, boolean depthFirst) {
+
+		Metrics.Timer timer = Metrics.Start(Metrics.TREE);
+
+		this.n = n;
+
+		Adjacency A = new Adjacency(E, n, false);
+		int[] offset = A.offset, adj = A.adj;
+
+		newId = new int[n];
+		oldId = new int[n];
+		for(int i = 0; i < n; i++)
+			newId[i] = -1;
+
+		// Stack of the depth-first searches, shared by all the trees.
+		int[] stack = depthFirst ? new int[n] : null, position = depthFirst ? new int[n] : null;
+
+		TreeCenter center = new TreeCenter(A, n);
+
+		int next = 0;
+
+		for(int r = 0; r < n; r++) {
+
+			if(newId[r] != -1)
+				continue;
+
+			int c = center.Of(r);
+
+			newId[c] = next;
+			oldId[next++] = c;
+
+			if(depthFirst)
+				next = Depth(c, next, offset, adj, stack, position);
+			else
+				next = Breadth(next - 1, next, offset, adj);
+		}
+
+		Metrics.Stop(timer);
+	}
+
+	// Breadth-first search from the vertices oldId[head] ... oldId[tail - 1], already numbered, using oldId[] as the queue.
+	// Returns the next free number.
+	private int Breadth(int head, int tail, int[] offset, int[] adj) {
+
+		while(head < tail) {
+
+			int u = oldId[head++];
+
+			for(int i = offset[u]; i < offset[u + 1]; i++) {
+
+				int v = adj[i];
+
+				if(newId[v] != -1)
+					continue;
+
+				newId[v] = tail;
+				oldId[tail++] = v;
+			}
+		}
+
+		return tail;
+	}
+
+	// Depth-first search from r, already numbered, numbering each vertex when it is first reached.
+	// The stack holds the path from r, with the position reached in the neighbours of each of its vertices.
+	// Returns the next free number.
+	private int Depth(int r, int next, int[] offset, int[] adj, int[] stack, int[] position) {
+
+		int top = 0;
+
+		stack[0] = r;
+		position[0] = offset[r];
+
+		while(top >= 0) {
+
+			int u = stack[top];
+
+			if(position[top] == offset[u + 1]) {
+				top--;
+				continue;
+			}
+
+			int v = adj[position[top]++];
+
+			if(newId[v] != -1)
+				continue;
+
+			newId[v] = next;
+			oldId[next++] = v;
+
+			top++;
+			stack[top] = v;
+			position[top] = offset[v];
+		}
+
+		return next;
+	}
+
+	/// Summary: Returns the edges with their vertices renumbered, in the same order (which KruskalTree relies on).
+	public Edge[] Apply(Edge[] E) {
+
+		Edge[] renamed = new Edge[E.length];
+
+		for(int i = 0; i < E.length; i++)
+			renamed[i] = new Edge(newId[E[i].u], newId[E[i].v], E[i].weight);
+
+		return renamed;
+	}
+
+	/// Summary: Returns the queries (pairs of vertices) with their vertices renumbered.
+	public int[] Translate(int[] query) {
+
+		int[] renamed = new int[query.length];
+
+		for(int i = 0; i < query.length; i++)
+			renamed[i] = newId[query[i]];
+
+		return renamed;
+	}
+
+	/// Summary: Returns an engine answering queries in input numbers with an engine built on the new numbers.
+	public Engine Translate(Engine engine) {
+
+		return (u, v) -> engine.MaxNoise(newId[u], newId[v]);
+
+	}
+
+}
@@ -1,15 +1,19 @@
 package tree;
 
 import java.util.ArrayDeque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import graph.ConcurrentUnionFind;
 import graph.Edge;
-import graph.EdgeComparator;
 import graph.Graph;
 import graph.UnionFind;
 import graph.Vertex;
+import metrics.Metrics;
 
 public class Tree {
 
@@ -38,9 +42,8 @@ public class Tree {
 			
 			node[i] = new Node(i,null,0);
 				
-		// Sets a random node as the root of the tree
-		int rand = ThreadLocalRandom.current().nextInt(node.length);
-		bigFather = node[rand];
+		// Sets the center of the tree as its root, which gives the lowest height (see TreeCenter).
+		bigFather = node[new TreeCenter(E, G.n).Of(0)];
 		
 		maxDepth = 0;
 		
@@ -79,27 +82,269 @@ public class Tree {
 	}
 	
 	//Kruskal's Algorithm to find a Minimum Spanning Tree from graph G.
+	// Implemented as Filter-Kruskal: the edges are partitioned around a pivot weight, the light part is processed first, and the
+	// heavy part is then filtered of the edges whose endpoints are already connected before being processed in turn.
+	// Only the surviving partitions are sorted, on primitive keys, with a parallel (fork-join) sort.
+	// The returned edges are in the order in which they were accepted, i.e. by increasing weight.
+	// If G is not connected, this is a minimum spanning forest: n - c edges for c components.
 	public static Edge[] MST(Graph G) {
 
-		UnionFind u = new UnionFind(G.n);
-		LinkedList<Edge> l = new LinkedList<Edge>();
-		for(int j = 0; j < G.E.length; j++)
-			l.add(G.E[j]);
-		l.sort(new EdgeComparator());
-
-		Edge[] F = new Edge[G.n - 1];
-		int i =0;
-		for(Edge r : l){
-			int source = r.u;
-			int target = r.v;
-			if(u.find(source) != u.find(target)){
-				F[i] = r;
-				i++;
-				u.union(source, target);
-			}		
+		Metrics.Timer timer = Metrics.Start(Metrics.MST);
+		
+		FilterKruskal K = new FilterKruskal(G);
+		
+		K.Process(0, K.keys.length);
+		
+		Metrics.Add(Metrics.EDGES_ACCEPTED, K.i);
+		Metrics.Stop(timer);
+		
+		return (K.i == K.F.length) ? K.F : Arrays.copyOf(K.F, K.i);
+	}
+	
+	// State of one run of Filter-Kruskal.
+	// Each edge j is represented by the key (weight << 32 | j), so that sorting the keys sorts the edges by weight, and ties by index.
+	private static class FilterKruskal {
+		
+		// Below this number of edges, a partition is sorted rather than split again.
+		static final int THRESHOLD = 1 << 16;
+		
+		Graph G;
+		UnionFind u;
+		long[] keys;
+		Edge[] F;
+		int i;
+		
+		FilterKruskal(Graph G) {
+			
+			this.G = G;
+			u = new UnionFind(G.n);
+			keys = new long[G.m];
+			for(int j = 0; j < G.m; j++)
+				keys[j] = ((long) G.weight[j] << 32) | j;
+			F = new Edge[Math.max(G.n - 1, 0)];
+			i = 0;
+		}
+		
+		// Runs Kruskal on the edges keys[from] ... keys[to - 1], all heavier than the edges already processed.
+		void Process(int from, int to) {
+			
+			if(i == F.length)
+				return;
+			
+			// Small partitions are not split (nor are the ones where all keys fell below the pivot).
+			int middle = (to - from <= THRESHOLD) ? to : Partition(from, to);
+			
+			if(middle == to) {
+				
+				Arrays.parallelSort(keys, from, to);
+				
+				int k = from;
+				for(; k < to && i < F.length; k++) {
+					int j = (int) keys[k];
+					int source = G.u[j];
+					int target = G.v[j];
+					if(u.find(source) != u.find(target)){
+						F[i] = G.GetEdge(j);
+						i++;
+						u.union(source, target);
+					}
+				}
+				Metrics.Add(Metrics.EDGES_SCANNED, k - from);
+				return;
+			}
+			
+			Process(from, middle);
+			
+			// Once the forest is complete, the heavier edges are not even filtered.
+			if(i == F.length)
+				return;
+			
+			Process(middle, Filter(middle, to));
+		}
+		
+		// Partitions keys[from] ... keys[to - 1] around the median of three random keys.
+		// Returns the index of the first key greater than the pivot.
+		int Partition(int from, int to) {
+			
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long a = keys[random.nextInt(from, to)], b = keys[random.nextInt(from, to)], c = keys[random.nextInt(from, to)];
+			long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+			
+			int left = from, right = to - 1;
+			while(left <= right) {
+				if(keys[left] <= pivot)
+					left++;
+				else {
+					long temp = keys[left];
+					keys[left] = keys[right];
+					keys[right] = temp;
+					right--;
+				}
+			}
+			return left;
+		}
+		
+		// Removes from keys[from] ... keys[to - 1] the edges whose endpoints are already connected.
+		// Returns the end of the remaining keys.
+		int Filter(int from, int to) {
+			
+			int end = from;
+			for(int k = from; k < to; k++) {
+				int j = (int) keys[k];
+				if(u.find(G.u[j]) != u.find(G.v[j]))
+					keys[end++] = keys[k];
+			}
+			Metrics.Add(Metrics.EDGES_FILTERED, to - end);
+			return end;
+		}
+	}
+	
+	
+	//Boruvka's Algorithm to find the same Minimum Spanning Tree as MST(G), with several threads.
+	// Each round, every component picks its lightest outgoing edge (ties broken by index, as in MST) in parallel over the edges,
+	// then all the picked edges are added at once, merging the components in a lock-free ConcurrentUnionFind, and the edges
+	// that became internal to a component are dropped. Each round at least halves the number of components.
+	// As for MST, the returned edges are sorted by increasing weight (and form a spanning forest if G is not connected).
+	public static Edge[] BoruvkaMST(Graph G, int threads) {
+		
+		ForkJoinPool pool = Parallel.Pool(threads);
+		Metrics.Timer timer = Metrics.Start(Metrics.MST);
+		
+		try {
+			return new Boruvka(G, pool).Run();
+		}
+		finally {
+			if(pool != null)
+				pool.shutdown();
+			Metrics.Stop(timer);
+		}
+	}
+	
+	// State of one run of Boruvka.
+	private static class Boruvka {
+		
+		// Number of edges (or vertices) processed by each task.
+		static final int GRAIN = 1 << 14;
+		
+		static final long NONE = Long.MAX_VALUE;
+		
+		Graph G;
+		ForkJoinPool pool; // null with a single thread
+		ConcurrentUnionFind u;
+		
+		int[] edges; // indices of the edges still between two components
+		int m;
+		
+		AtomicLongArray best; // key (weight << 32 | index) of the lightest edge leaving each component, by representative
+		
+		long[] accepted; // keys of the edges added to the tree
+		AtomicInteger i;
+		
+		Boruvka(Graph G, ForkJoinPool pool) {
+			
+			this.G = G;
+			this.pool = pool;
+			u = new ConcurrentUnionFind(G.n);
+			
+			m = G.m;
+			edges = new int[m];
+			for(int j = 0; j < m; j++)
+				edges[j] = j;
+			
+			best = new AtomicLongArray(G.n);
+			for(int j = 0; j < G.n; j++)
+				best.set(j, NONE);
+			
+			accepted = new long[Math.max(G.n - 1, 0)];
+			i = new AtomicInteger(0);
+		}
+		
+		Edge[] Run() {
+			
+			while(m > 0 && i.get() < accepted.length) {
+				
+				// The lightest edge leaving each component.
+				For(0, m, GRAIN, (from, to) -> {
+					for(int k = from; k < to; k++) {
+						int j = edges[k];
+						int source = u.find(G.u[j]);
+						int target = u.find(G.v[j]);
+						if(source != target) {
+							long key = ((long) G.weight[j] << 32) | j;
+							Min(source, key);
+							Min(target, key);
+						}
+					}
+				});
+				
+				// Adds them all. An edge picked by both of its components is only added once, by the first successful union.
+				For(0, G.n, GRAIN, (from, to) -> {
+					for(int c = from; c < to; c++) {
+						long key = best.get(c);
+						if(key != NONE) {
+							best.set(c, NONE);
+							int j = (int) key;
+							if(u.union(G.u[j], G.v[j]))
+								accepted[i.getAndIncrement()] = key;
+						}
+					}
+				});
+				
+				Metrics.Add(Metrics.EDGES_SCANNED, m);
+				m = Filter();
+			}
+			
+			// Sorts the accepted edges by weight (then index), as Kruskal would have accepted them.
+			Arrays.parallelSort(accepted, 0, i.get());
+			Metrics.Add(Metrics.EDGES_ACCEPTED, i.get());
+			
+			Edge[] F = new Edge[i.get()];
+			for(int k = 0; k < i.get(); k++)
+				F[k] = G.GetEdge((int) accepted[k]);
+			
+			return F;
+		}
+		
+		// Lowers best[c] to key, if it is smaller.
+		void Min(int c, long key) {
+			
+			long current = best.get(c);
+			while(key < current && !best.compareAndSet(c, current, key))
+				current = best.get(c);
+		}
+		
+		// Removes the edges whose endpoints are now in the same component, each task compacting its own block in place.
+		// Returns the number of remaining edges.
+		int Filter() {
+			
+			int blocks = (m + GRAIN - 1) / GRAIN;
+			int[] count = new int[blocks];
+			
+			For(0, blocks, 1, (from, to) -> {
+				for(int b = from; b < to; b++) {
+					int end = b * GRAIN;
+					for(int k = b * GRAIN; k < Math.min(m, (b + 1) * GRAIN); k++) {
+						int j = edges[k];
+						if(u.find(G.u[j]) != u.find(G.v[j]))
+							edges[end++] = edges[k];
+					}
+					count[b] = end - b * GRAIN;
+				}
+			});
+			
+			int end = 0;
+			for(int b = 0; b < blocks; b++) {
+				System.arraycopy(edges, b * GRAIN, edges, end, count[b]);
+				end += count[b];
+			}
+			return end;
+		}
+		
+		// Runs body over [from, to), split in ranges of at most grain elements processed in parallel by the pool.
+		void For(int from, int to, int grain, Parallel.Range body) {
 			
+			Parallel.For(pool, from, to, grain, body);
 		}
-		return F;
 	}
 	
 	
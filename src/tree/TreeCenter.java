@@ -0,0 +1,91 @@
+package tree;
+
+import graph.Edge;
+
+/// Summary: Finds the center of each tree of a forest, i.e. the vertex whose farthest vertex is the closest: rooted at its
+/// center, a tree has the lowest possible height, ceil(d / 2) for a diameter of d edges.
+/// Two breadth-first searches per tree: the vertex a farthest from any vertex is an end of a diameter, and the vertex b
+/// farthest from a is the other end. The center is the middle of the path from b back to a. Complexity is O( size of the tree ).
+/// The result only depends on the edges and their order, so the same input always gives the same root.
+final class TreeCenter {
+
+	// Compressed adjacency of the forest (see Adjacency).
+	private final int[] offset, adj;
+
+	private final int[] distance; // -1 outside of the current search
+	private final int[] queue;
+	private final int[] from; // father of each vertex in the last search
+
+	// Last vertex reached by the last search, and its distance.
+	private int last, eccentricity;
+
+	/// Summary: Prepares the search of centers in the forest of the n - c edges E.
+	TreeCenter(Edge[] E, int n) {
+
+		this(new Adjacency(E, n, false), n);
+
+	}
+
+	/// Summary: Prepares the search of centers in the forest given by its compressed adjacency A on n vertices.
+	TreeCenter(Adjacency A, int n) {
+
+		this.offset = A.offset;
+		this.adj = A.adj;
+
+		distance = new int[n];
+		queue = new int[n];
+		from = new int[n];
+
+		for(int i = 0; i < n; i++)
+			distance[i] = -1;
+	}
+
+	/// Summary: Returns the center of the tree of r.
+	int Of(int r) {
+
+		Search(Search(r));
+
+		int center = last;
+		for(int i = 0; i < eccentricity / 2; i++)
+			center = from[center];
+
+		return center;
+	}
+
+	// Breadth-first search from r, setting last and eccentricity. Returns last.
+	private int Search(int r) {
+
+		int head = 0, tail = 0;
+
+		queue[tail++] = r;
+		distance[r] = 0;
+		from[r] = -1;
+
+		while(head < tail) {
+
+			int u = queue[head++];
+
+			for(int i = offset[u]; i < offset[u + 1]; i++) {
+
+				int v = adj[i];
+
+				if(distance[v] != -1)
+					continue;
+
+				distance[v] = distance[u] + 1;
+				from[v] = u;
+				queue[tail++] = v;
+			}
+		}
+
+		// The last vertex of a BFS is one of the farthest.
+		last = queue[tail - 1];
+		eccentricity = distance[last];
+
+		for(int i = 0; i < tail; i++)
+			distance[queue[i]] = -1;
+
+		return last;
+	}
+
+}